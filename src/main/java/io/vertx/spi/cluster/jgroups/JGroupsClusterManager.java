@@ -20,8 +20,11 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxException;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.metrics.Measured;
 import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.core.shareddata.Counter;
 import io.vertx.core.shareddata.Lock;
@@ -32,6 +35,8 @@ import io.vertx.spi.cluster.jgroups.impl.CacheManager;
 import io.vertx.spi.cluster.jgroups.impl.domain.ClusteredCounterImpl;
 import io.vertx.spi.cluster.jgroups.impl.domain.ClusteredLockImpl;
 import io.vertx.spi.cluster.jgroups.impl.listeners.TopologyListener;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterMetrics;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
 import org.jgroups.JChannel;
 import org.jgroups.blocks.atomic.CounterService;
@@ -40,16 +45,23 @@ import org.jgroups.blocks.locking.LockService;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
+public class JGroupsClusterManager implements ClusterManager, Measured, LambdaLogger {
 
   private static final Logger LOG = LoggerFactory.getLogger(JGroupsClusterManager.class);
 
   public static final String DEFAULT_CONFIG_FILE = "default-jgroups.xml";
   public static final String CONFIG_FILE = "jgroups.xml";
+  /**
+   * Stack of members running in the same JVM, without any network, see {@link #loopbackCluster}.
+   */
+  public static final String LOOPBACK_CONFIG_FILE = "loopback-jgroups.xml";
 
   public static final String CLUSTER_NAME = "JGROUPS_CLUSTER";
 
+  private static final AtomicInteger LOOPBACK_CLUSTERS = new AtomicInteger();
+
   private Vertx vertx;
 
   private CacheManager cacheManager;
@@ -66,15 +78,46 @@ public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
   private TopologyListener topologyListener;
 
   private final boolean customChannel;
+  private final String configFile;
+  private final String clusterName;
 
 
   public JGroupsClusterManager() {
-    customChannel = false;
+    this(null, CLUSTER_NAME);
   }
 
   public JGroupsClusterManager(JChannel channel) {
     this.channel = channel;
     customChannel = true;
+    configFile = null;
+    clusterName = CLUSTER_NAME;
+  }
+
+  /**
+   * @param configFile  the resource configuring the stack, {@code null} looks up {@link #CONFIG_FILE} then
+   *                    {@link #DEFAULT_CONFIG_FILE}
+   * @param clusterName the cluster to join, members only see the members that joined the same cluster
+   */
+  public JGroupsClusterManager(String configFile, String clusterName) {
+    customChannel = false;
+    this.configFile = configFile;
+    this.clusterName = clusterName;
+  }
+
+  /**
+   * Starts {@code members} clustered Vert.x instances in this JVM, on the {@link #LOOPBACK_CONFIG_FILE} stack. The
+   * instances join a cluster of their own, they don't see the members of any other cluster.
+   */
+  public static void loopbackCluster(int members, Handler<AsyncResult<LoopbackCluster>> handler) {
+    loopbackCluster(members, new VertxOptions(), handler);
+  }
+
+  /**
+   * Same as {@link #loopbackCluster(int, Handler)}, the instances are created with a copy of {@code options}.
+   */
+  public static void loopbackCluster(int members, VertxOptions options, Handler<AsyncResult<LoopbackCluster>> handler) {
+    String clusterName = CLUSTER_NAME + "-loopback-" + LOOPBACK_CLUSTERS.incrementAndGet();
+    new LoopbackCluster(clusterName, members, options).start(handler);
   }
 
   @Override
@@ -158,16 +201,17 @@ public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
       synchronized (lock) {
         if (!active) {
           try {
+            AckLevel.validate();
 
             if (! customChannel) {
-              try (InputStream stream = getConfigStream()) {
+              try (InputStream stream = configFile != null ? getConfigStream(configFile) : getConfigStream()) {
                 channel = new JChannel(stream);
               }
             }
 
             topologyListener = new TopologyListener(vertx);
             channel.setReceiver(topologyListener);
-            channel.connect(CLUSTER_NAME);
+            channel.connect(clusterName);
 
             address = channel.getAddressAsString();
 
@@ -176,7 +220,7 @@ public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
             counterService = new CounterService(channel);
             lockService = new LockService(channel);
 
-            cacheManager = new CacheManager(vertx, channel);
+            cacheManager = new CacheManager(vertx, channel, topologyListener);
             cacheManager.start();
 
             active = true;
@@ -214,11 +258,32 @@ public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
     }, handler);
   }
 
+  JChannel channel() {
+    return channel;
+  }
+
   @Override
   public boolean isActive() {
     return active;
   }
 
+  /**
+   * @return whether the metrics are recorded, see {@link ClusterMetrics#PROPERTY}
+   */
+  @Override
+  public boolean isMetricsEnabled() {
+    CacheManager cacheManager = this.cacheManager;
+    return cacheManager != null && cacheManager.metrics().enabled();
+  }
+
+  /**
+   * @return the metrics of this member, by metric name, empty when not in the cluster
+   */
+  public JsonObject metricsSnapshot() {
+    CacheManager cacheManager = this.cacheManager;
+    return cacheManager != null ? cacheManager.metrics().snapshot() : new JsonObject();
+  }
+
   private void checkCluster() {
     if (!active) {
       throw new VertxException("Cluster is not active!");
@@ -245,6 +310,18 @@ public class JGroupsClusterManager implements ClusterManager, LambdaLogger {
     return is;
   }
 
+  private static InputStream getConfigStream(String configFile) {
+    ClassLoader ctxClsLoader = Thread.currentThread().getContextClassLoader();
+    InputStream is = ctxClsLoader != null ? ctxClsLoader.getResourceAsStream(configFile) : null;
+    if (is == null) {
+      is = JGroupsClusterManager.class.getClassLoader().getResourceAsStream(configFile);
+    }
+    if (is == null) {
+      throw new VertxException("Cannot find the JGroups configuration " + configFile);
+    }
+    return is;
+  }
+
   /**
    * Mostly useful for testing: closes the JChannel if it's still open, unless it was provided
    * to the constructor.
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.jgroups.JChannel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Clustered Vert.x instances running in the same JVM, created by {@link JGroupsClusterManager#loopbackCluster}.
+ * <p>
+ * The instances are started one after the other, so the first one is the coordinator and the others join it right
+ * away. {@link #close} stops them in the reverse order, leaving nothing behind in the loopback stack.
+ */
+public class LoopbackCluster {
+
+  private final String clusterName;
+  private int members;
+  private final VertxOptions options;
+  private final List<Vertx> vertxs = new ArrayList<>();
+  private final List<JGroupsClusterManager> clusterManagers = new ArrayList<>();
+
+  LoopbackCluster(String clusterName, int members, VertxOptions options) {
+    this.clusterName = clusterName;
+    this.members = members;
+    this.options = options;
+  }
+
+  void start(Handler<AsyncResult<LoopbackCluster>> handler) {
+    if (vertxs.size() == members) {
+      handler.handle(Future.succeededFuture(this));
+      return;
+    }
+    JGroupsClusterManager clusterManager = new JGroupsClusterManager(JGroupsClusterManager.LOOPBACK_CONFIG_FILE, clusterName);
+    VertxOptions memberOptions = new VertxOptions(options)
+        .setClusterManager(clusterManager)
+        .setClustered(true)
+        .setClusterHost("127.0.0.1");
+    Vertx.clusteredVertx(memberOptions, (ar) -> {
+      if (ar.succeeded()) {
+        vertxs.add(ar.result());
+        clusterManagers.add(clusterManager);
+        start(handler);
+      } else {
+        // Stops the members started so far before reporting the failure.
+        close((closed) -> handler.handle(Future.failedFuture(ar.cause())));
+      }
+    });
+  }
+
+  /**
+   * Starts one more instance, it joins the others and gets its state from the coordinator. As when the cluster
+   * starts, a failure stops all the instances.
+   */
+  public void join(Handler<AsyncResult<LoopbackCluster>> handler) {
+    members++;
+    start(handler);
+  }
+
+  public String clusterName() {
+    return clusterName;
+  }
+
+  public int size() {
+    return vertxs.size();
+  }
+
+  public Vertx vertx(int member) {
+    return vertxs.get(member);
+  }
+
+  public JGroupsClusterManager clusterManager(int member) {
+    return clusterManagers.get(member);
+  }
+
+  /**
+   * @return the channel of a member, e.g. to add protocols to its stack
+   */
+  public JChannel channel(int member) {
+    return clusterManagers.get(member).channel();
+  }
+
+  public List<Vertx> vertxs() {
+    return Collections.unmodifiableList(vertxs);
+  }
+
+  /**
+   * Closes the instances, the last started first, the coordinator last.
+   */
+  public void close(Handler<AsyncResult<Void>> handler) {
+    close(null, handler);
+  }
+
+  private void close(Throwable failure, Handler<AsyncResult<Void>> handler) {
+    if (vertxs.isEmpty()) {
+      handler.handle(failure == null ? Future.succeededFuture() : Future.failedFuture(failure));
+      return;
+    }
+    int last = vertxs.size() - 1;
+    Vertx vertx = vertxs.remove(last);
+    JGroupsClusterManager clusterManager = clusterManagers.remove(last);
+    vertx.close((ar) -> {
+      // Frees the loopback stack even if the instance failed to leave cleanly.
+      clusterManager.kill();
+      close(failure != null || ar.succeeded() ? failure : ar.cause(), handler);
+    });
+  }
+}
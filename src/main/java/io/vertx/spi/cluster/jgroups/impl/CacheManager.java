@@ -22,63 +22,136 @@ import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.spi.cluster.jgroups.impl.domain.BufferedChoosableArrayList;
+import io.vertx.spi.cluster.jgroups.impl.domain.ChoosableArrayListImpl;
 import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
 import io.vertx.spi.cluster.jgroups.impl.domain.SyncMapWrapper;
 import io.vertx.spi.cluster.jgroups.impl.domain.async.AsyncMapWrapper;
 import io.vertx.spi.cluster.jgroups.impl.domain.async.AsyncMultiMapWrapper;
+import io.vertx.spi.cluster.jgroups.impl.listeners.TopologyListener;
 import io.vertx.spi.cluster.jgroups.impl.services.*;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterEvents;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterMetrics;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
-import org.jgroups.JChannel;
-import org.jgroups.ReceiverAdapter;
-import org.jgroups.blocks.RpcDispatcher;
+import io.vertx.spi.cluster.jgroups.impl.support.NearCache;
+import org.jgroups.*;
+import org.jgroups.blocks.RequestOptions;
+import org.jgroups.blocks.ResponseMode;
+import org.jgroups.conf.ClassConfigurator;
 
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class CacheManager extends ReceiverAdapter implements LambdaLogger {
 
     private static final Logger LOG = LoggerFactory.getLogger(CacheManager.class);
 
+    /**
+     * Max time in milliseconds a joining member waits for the cluster state.
+     */
+    public static final String STATE_TIMEOUT_PROPERTY = "vertx.jgroups.state.timeout";
+
+    private static final long STATE_TIMEOUT = Long.getLong(STATE_TIMEOUT_PROPERTY, 10000L);
+    private static final int STATE_BUFFER_SIZE = 8192;
+    // Delay before the entries whose copy to their new owners wasn't acknowledged are placed again.
+    private static final long REBALANCE_RETRY = 1000L;
+
+    static {
+        // Streamables shipped in the RPCs are written with a short id instead of their class name.
+        try {
+            ClassConfigurator.add((short) 1200, DataHolder.class);
+            ClassConfigurator.add((short) 1201, MethodCallBatch.class);
+            ClassConfigurator.add((short) 1202, ChoosableArrayListImpl.class);
+            ClassConfigurator.add((short) 1203, BufferedChoosableArrayList.class);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Unable to register magic numbers, class names will be sent instead", e);
+        }
+    }
+
+    private final Vertx vertx;
     private JChannel channel;
-    private final RpcDispatcher dispatcher;
+    private final Receiver receiver;
+    private final StripedRpcDispatcher dispatcher;
 
     private final RpcExecutorService executorService;
     private final RpcMultiMapService multiMapService;
-    private final RpcMapService mapService;
+    private final DefaultRpcMapService mapService;
+    private final MapPartitioner partitioner;
+    private final ClusterMetrics metrics;
+    private final boolean oobReads = Boolean.getBoolean(DefaultRpcExecutorService.OOB_READS_PROPERTY);
+
+    private final StateLog stateLog;
+    // The member our state comes from and the position of its state log at that time.
+    private volatile StatePosition statePosition;
 
-    public CacheManager(Vertx vertx, JChannel channel) {
+    private final StateSnapshot snapshot;
+    private long snapshotTimer;
+    private long expirationTimer;
+    private volatile StatePosition snapshotPosition;
+
+    public CacheManager(Vertx vertx, JChannel channel, TopologyListener topologyListener) {
+        this.vertx = vertx;
         this.channel = channel;
 
-        this.multiMapService = new DefaultRpcMultiMapService();
-        this.mapService = new DefaultRpcMapService();
+        this.metrics = ClusterMetrics.fromProperties();
+        this.stateLog = new StateLog();
+        this.snapshot = stateLog.enabled() ? StateSnapshot.fromProperties() : null;
+        if (!stateLog.enabled() && System.getProperty(StateSnapshot.FILE_PROPERTY) != null) {
+            // A snapshot is only loaded once reconciled with a delta of the state log.
+            logWarn(() -> String.format("Snapshots are disabled: [%s] is set but the state log is off, set [%s] to enable it",
+                    StateSnapshot.FILE_PROPERTY, StateLog.SIZE_PROPERTY));
+        }
+        this.partitioner = MapPartitioner.fromProperties(channel.getAddress());
+        this.multiMapService = new DefaultRpcMultiMapService(stateLog.space());
+        this.mapService = new DefaultRpcMapService(stateLog.space(), partitioner);
 
-        RpcServerObjDelegate server_obj = new RpcServerObjDelegate(mapService, multiMapService);
-        // Don't want to loose the channel receiver.
-        this.dispatcher = new RpcDispatcher(this.channel, this, channel.getReceiver(), server_obj);
+        RpcServerObjDelegate server_obj = new RpcServerObjDelegate(mapService, multiMapService, stateLog);
+        // Don't want to loose the channel receiver, the views are forwarded to it.
+        this.receiver = channel.getReceiver();
+        this.dispatcher = new StripedRpcDispatcher(this.channel, this, this, server_obj);
         this.dispatcher.setMethodLookup(server_obj.getMethodLookup());
+        RpcMarshaller marshaller = new RpcMarshaller();
+        this.dispatcher.setRequestMarshaller(marshaller);
+        this.dispatcher.setResponseMarshaller(marshaller);
 
-        this.executorService = new DefaultRpcExecutorService(vertx, dispatcher);
+        this.executorService = new DefaultRpcExecutorService(vertx, dispatcher, metrics);
+        metrics.laneQueueDepths(dispatcher::queueDepths);
+
+        mapService.invalidation(this::invalidate);
+        topologyListener.addViewListener(this::membersChanged);
     }
 
     public <K, V> AsyncMultiMap<K, V> createAsyncMultiMap(String name) {
         logDebug(() -> String.format("method createAsyncMultiMap address[%s] name[%s]", channel.getAddressAsString(), name));
         MultiMap<K, V> map = multiMapService.<K, V>multiMapCreate(name);
-        return new AsyncMultiMapWrapper<>(name, map, executorService);
+        return new AsyncMultiMapWrapper<>(name, map, executorService, AckLevel.of(name), metrics);
     }
 
     public <K, V> AsyncMap<K, V> createAsyncMap(String name) {
         logDebug(() -> String.format("method createAsyncMap address[%s] name[%s]", channel.getAddressAsString(), name));
         Map<K, V> map = mapService.<K, V>mapCreate(name);
-        return new AsyncMapWrapper<>(name, map, executorService);
+        NearCache<K, V> nearCache = mapService.nearCache(name);
+        metrics.nearCache(name, nearCache);
+        return new AsyncMapWrapper<>(name, map, executorService, partitioner, nearCache, metrics);
     }
 
     public <K, V> Map<K, V> createSyncMap(String name) {
         logDebug(() -> String.format("method createSyncMap address[%s] name[%s]", channel.getAddressAsString(), name));
+        if (partitioner.partitioned(name)) {
+            throw new VertxException(String.format("Map [%s] is partitioned, it is only available as an async map", name));
+        }
         Map<K, V> map = mapService.<K, V>mapCreate(name);
         return new SyncMapWrapper<>(name, map, executorService);
     }
 
+    public ClusterMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public Logger log() {
         return LOG;
@@ -87,27 +160,367 @@ public class CacheManager extends ReceiverAdapter implements LambdaLogger {
     @Override
     public void getState(OutputStream output) throws Exception {
         logTrace(() -> "CacheManager get state");
-        multiMapService.writeTo(output);
-        mapService.writeTo(output);
+        long start = System.nanoTime();
+        CountingOutputStream counting = new CountingOutputStream(output);
+        ClusterEvents.StateTransfer event = ClusterEvents.EVENTS.stateTransfer(true);
+        boolean succeeded = false;
+        try {
+            BufferedOutputStream buffered = new BufferedOutputStream(counting, STATE_BUFFER_SIZE);
+            // The writes delivered before the state request are part of the state, they must have been applied.
+            dispatcher.drain();
+            StateCompression.write(buffered, (state) -> {
+                // The position is taken before the maps are read, a delta from there includes any write made meanwhile.
+                DataOutputStream header = new DataOutputStream(state);
+                new StatePosition(channel.getAddress(), stateLog.epoch(), stateLog.position()).writeTo(header);
+                header.flush();
+                multiMapService.writeTo(state);
+                mapService.writeTo(state);
+            });
+            succeeded = true;
+        } finally {
+            metrics.stateSent(System.nanoTime() - start, counting.count, succeeded);
+            if (event != null) {
+                event.completed(counting.count, succeeded);
+            }
+        }
     }
 
     @Override
     public void setState(InputStream input) throws Exception {
         logTrace(() -> "CacheManager set state");
-        multiMapService.readFrom(input);
-        mapService.readFrom(input);
+        long start = System.nanoTime();
+        CountingInputStream counting = new CountingInputStream(input);
+        ClusterEvents.StateTransfer event = ClusterEvents.EVENTS.stateTransfer(false);
+        boolean succeeded = false;
+        try {
+            BufferedInputStream buffered = new BufferedInputStream(counting, STATE_BUFFER_SIZE);
+            StateCompression.read(buffered, (state) -> {
+                StatePosition position = StatePosition.readFrom(new DataInputStream(state));
+                multiMapService.readFrom(state);
+                mapService.readFrom(state);
+                statePosition = position;
+            });
+            succeeded = true;
+        } finally {
+            metrics.stateReceived(System.nanoTime() - start, counting.count, succeeded);
+            if (event != null) {
+                event.completed(counting.count, succeeded);
+            }
+        }
     }
 
     public void start() {
+        metrics.register(channel.getAddressAsString());
+        if (snapshot == null || !loadSnapshot()) {
+            requestState();
+        }
+        expirationTimer = vertx.setPeriodic(DefaultRpcMapService.TTL_TICK, id -> mapService.expire(this::expired));
+        if (snapshot != null) {
+            snapshotTimer = vertx.setPeriodic(StateSnapshot.interval(), id -> vertx.executeBlocking(future -> {
+                writeSnapshot();
+                future.complete();
+            }, false, null));
+        }
+    }
+
+    /**
+     * Brings the state of this member up to date, with the changes made since our state was received when the member
+     * it came from still has them in its state log, with a full state transfer otherwise.
+     */
+    public void resync() {
+        resync(channel.getView());
+    }
+
+    /**
+     * Same as {@link #resync()}, the delta is only asked to a member of {@code source}. After a partition, a provider
+     * that was on our side has none of the writes made on the other side.
+     */
+    private void resync(View source) {
+        StatePosition position = statePosition;
+        if (position == null || !isProvider(position, source)) {
+            requestState();
+            return;
+        }
+        byte[] delta = requestDelta(position);
+        if (delta != null) {
+            applyDelta(position, delta);
+        } else {
+            requestState();
+        }
+    }
+
+    /**
+     * Every member tracks the TTL of the entries, the coordinator removes them from the whole cluster once expired.
+     * The entries of a partitioned map are removed by their primary owner, from their owners.
+     */
+    private void expired(String name, Map<Object, Long> ids) {
+        if (partitioner.partitioned(name)) {
+            ids.entrySet().stream()
+                    .filter(entry -> partitioner.primary(entry.getKey()))
+                    .collect(Collectors.groupingBy(entry -> partitioner.owners(entry.getKey()),
+                            Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)))
+                    .forEach((owners, ownerIds) -> executorService.remoteExecute(owners, RpcServerObjDelegate.CALL_MAP_EXPIRE.method(name, ownerIds), (ar) -> {
+                        if (ar.failed()) {
+                            logWarn(() -> String.format("Expiration of entries of [%s] failed: %s", name, ar.cause().getMessage()));
+                        }
+                    }));
+            return;
+        }
+        View view = channel.getView();
+        if (view != null && channel.getAddress().equals(view.getCoord())) {
+            logTrace(() -> String.format("Expiring %d entries of [%s]", ids.size(), name));
+            executorService.remoteExecute(RpcServerObjDelegate.CALL_MAP_EXPIRE.method(name, ids), (ar) -> {
+                if (ar.failed()) {
+                    logWarn(() -> String.format("Expiration of entries of [%s] failed: %s", name, ar.cause().getMessage()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Tells the members with a copy of the entry of {@code key} in their near cache that it changed.
+     */
+    private void invalidate(String name, Object key, Collection<Address> readers) {
+        executorService.remoteExecute(readers, RpcServerObjDelegate.CALL_MAP_INVALIDATE.method(name, key), (ar) -> {
+            if (ar.failed()) {
+                logWarn(() -> String.format("Invalidation of [%s] in the near caches of %s failed: %s", name, readers, ar.cause().getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Moves the entries of the partitioned maps to their owners in the new view.
+     */
+    private void membersChanged(List<Address> members) {
+        metrics.viewChanged(members.size());
+        partitioner.membersChanged(members);
+        mapService.membersChanged(members);
+        rebalance();
+    }
+
+    private void rebalance() {
+        vertx.<Boolean>executeBlocking(future -> future.complete(partitioner.rebalance(mapService,
+                (name, keys, target) -> dispatcher.callRemoteMethod(target,
+                        RpcServerObjDelegate.CALL_MAP_IMPORT.method(name, mapService.mapExport(name, keys)),
+                        new RequestOptions(ResponseMode.GET_FIRST, STATE_TIMEOUT)))), false, ar -> {
+            if (ar.succeeded() && !ar.result() && channel.isConnected()) {
+                vertx.setTimer(REBALANCE_RETRY, id -> rebalance());
+            }
+        });
+    }
+
+    private void requestState() {
+        try {
+            channel.getState(null, STATE_TIMEOUT);
+        } catch (Exception e) {
+            throw new VertxException(e);
+        }
+    }
+
+    private boolean isProvider(StatePosition position) {
+        return isProvider(position, channel.getView());
+    }
+
+    private boolean isProvider(StatePosition position, View view) {
+        return !position.provider().equals(channel.getAddress()) && view.containsMember(position.provider());
+    }
+
+    private byte[] requestDelta(StatePosition position) {
+        try {
+            return dispatcher.callRemoteMethod(position.provider(),
+                    RpcServerObjDelegate.CALL_STATE_DELTA.apply(position.epoch(), position.position()),
+                    readOptions());
+        } catch (Exception e) {
+            logWarn(() -> String.format("Delta state transfer from [%s] failed: %s", position.provider(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private RequestOptions readOptions() {
+        RequestOptions options = new RequestOptions(ResponseMode.GET_FIRST, STATE_TIMEOUT);
+        return oobReads ? options.setFlags(Message.Flag.OOB) : options;
+    }
+
+    private void applyDelta(StatePosition position, byte[] delta) {
         try {
-            channel.getState(null, 10000);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(delta));
+            long deltaPosition = input.readLong();
+            multiMapService.readDelta(input);
+            mapService.readDelta(input);
+            statePosition = position.at(deltaPosition);
+            logDebug(() -> String.format("Applied %d bytes of delta state from [%s]", delta.length, position.provider()));
         } catch (Exception e) {
             throw new VertxException(e);
         }
     }
 
+    /**
+     * Seeds the maps with the local snapshot, when its state provider is still there to send what changed since.
+     */
+    private boolean loadSnapshot() {
+        try {
+            return snapshot.load((position, state) -> {
+                if (!isProvider(position)) {
+                    return false;
+                }
+                // Asked before reading the snapshot, there's no point in reading it if it can't be reconciled.
+                byte[] delta = requestDelta(position);
+                if (delta == null) {
+                    return false;
+                }
+                multiMapService.readFrom(state);
+                mapService.readFrom(state);
+                applyDelta(position, delta);
+                snapshotPosition = statePosition;
+                logInfo(() -> String.format("Loaded the state from the snapshot, reconciled with [%s]", position.provider()));
+                return true;
+            });
+        } catch (Exception e) {
+            logWarn(() -> "Unable to load the snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void writeSnapshot() {
+        StatePosition current = statePosition;
+        StatePosition position = snapshotPosition;
+        if (current == null) {
+            return;
+        }
+        if (position == null || !position.provider().equals(current.provider()) || position.epoch() != current.epoch()) {
+            position = current;
+        }
+        try {
+            snapshot.write(position, (state) -> {
+                multiMapService.writeTo(state);
+                mapService.writeTo(state);
+            });
+        } catch (Exception e) {
+            StatePosition failed = position;
+            logWarn(() -> String.format("Unable to write the snapshot at %s: %s", failed, e.getMessage()));
+            return;
+        }
+        // The next snapshot records the position the provider is at now. It can't be recorded in this one as writes
+        // the provider applied may still be on their way to us, one interval later they are in our maps.
+        if (isProvider(position)) {
+            try {
+                long providerPosition = dispatcher.callRemoteMethod(position.provider(),
+                        RpcServerObjDelegate.CALL_STATE_POSITION.apply(position.epoch()),
+                        readOptions());
+                if (providerPosition > position.position()) {
+                    snapshotPosition = position.at(providerPosition);
+                }
+            } catch (Exception e) {
+                logDebug(() -> "Unable to get the position of the state provider: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void viewAccepted(View view) {
+        if (receiver != null) {
+            receiver.viewAccepted(view);
+        }
+        if (view instanceof MergeView && stateLog.enabled()) {
+            // Members outside of the coordinator's side of the partition catch up with it.
+            View coordinatorSide = ((MergeView) view).getSubgroups().stream()
+                    .filter(subgroup -> subgroup.containsMember(view.getCoord()))
+                    .findFirst()
+                    .orElse(view);
+            if (!coordinatorSide.containsMember(channel.getAddress())) {
+                vertx.executeBlocking(future -> {
+                    resync(coordinatorSide);
+                    future.complete();
+                }, false, null);
+            }
+        }
+    }
+
+    @Override
+    public void suspect(Address address) {
+        if (receiver != null) {
+            receiver.suspect(address);
+        }
+    }
+
+    @Override
+    public void block() {
+        if (receiver != null) {
+            receiver.block();
+        }
+    }
+
+    @Override
+    public void unblock() {
+        if (receiver != null) {
+            receiver.unblock();
+        }
+    }
+
     public void stop() {
-        dispatcher.stop();
+        vertx.cancelTimer(expirationTimer);
+        if (snapshot != null) {
+            vertx.cancelTimer(snapshotTimer);
+            writeSnapshot();
+        }
         executorService.stop();
+        dispatcher.stop();
+        metrics.unregister();
     }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
 }
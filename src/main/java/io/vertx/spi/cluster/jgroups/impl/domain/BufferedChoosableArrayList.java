@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.domain;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataCodec;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link ChoosableArrayList} for values registered in bursts. Writes go to a growable buffer in amortized constant
+ * time and the immutable snapshot used by readers is only rebuilt on the first read following a run of writes,
+ * instead of on every write like {@link ChoosableArrayListImpl}.
+ */
+public class BufferedChoosableArrayList<T> implements ChoosableArrayList<T> {
+
+  private static final Object[] EMPTY = new Object[0];
+
+  // Guarded by the instance lock.
+  private Object[] buffer = EMPTY;
+  private volatile int size;
+
+  private volatile Object[] snapshot = EMPTY;
+  private volatile boolean dirty;
+  private final RoundRobin roundRobin = new RoundRobin();
+
+  public BufferedChoosableArrayList() {
+  }
+
+  @Override
+  public synchronized ChoosableArrayList<T> add(T value) {
+    if (size == buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(4, size * 2));
+    }
+    buffer[size] = value;
+    size = size + 1;
+    dirty = true;
+    return this;
+  }
+
+  @Override
+  public synchronized ChoosableArrayList<T> remove(T value) {
+    for (int i = 0; i < size; i++) {
+      if (value == null ? buffer[i] == null : value.equals(buffer[i])) {
+        System.arraycopy(buffer, i + 1, buffer, i, size - i - 1);
+        buffer[size - 1] = null;
+        size = size - 1;
+        dirty = true;
+        break;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Looks up the buffer, so a remove followed by a check doesn't rebuild the snapshot.
+   */
+  @Override
+  public synchronized boolean contains(T value) {
+    for (int i = 0; i < size; i++) {
+      if (value == null ? buffer[i] == null : value.equals(buffer[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public T first() {
+    return (T) values()[0];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public T choose() {
+    return (T) roundRobin.choose(values());
+  }
+
+  private Object[] values() {
+    if (dirty) {
+      synchronized (this) {
+        if (dirty) {
+          snapshot = Arrays.copyOf(buffer, size);
+          dirty = false;
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  @Override
+  public void writeExternal(ObjectOutput out) throws IOException {
+    try {
+      writeTo(out);
+    } catch (Exception e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void readExternal(ObjectInput in) throws IOException {
+    try {
+      readFrom(in);
+    } catch (Exception e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void writeTo(DataOutput out) throws Exception {
+    Object[] values = values();
+    out.writeInt(values.length);
+    for (Object value : values) {
+      DataCodec.write(value, out);
+    }
+  }
+
+  @Override
+  public synchronized void readFrom(DataInput in) throws Exception {
+    int length = in.readInt();
+    Object[] values = new Object[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = DataCodec.read(in);
+    }
+    buffer = values;
+    size = length;
+    snapshot = Arrays.copyOf(values, length);
+    dirty = false;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return Collections.unmodifiableList(Arrays.asList((T[]) values())).iterator();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof BufferedChoosableArrayList)) {
+      return false;
+    }
+
+    Object[] values = values();
+    Object[] other = ((BufferedChoosableArrayList) o).values();
+    if (values.length != other.length) {
+      return false;
+    }
+    for (Object value : values) {
+      if (!Arrays.asList(other).contains(value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(values());
+  }
+
+  @Override
+  public String toString() {
+    String valuesToString = Arrays.stream(values())
+        .map(Object::toString)
+        .collect(Collectors.joining(", "));
+    return "[" + valuesToString + "]";
+  }
+}
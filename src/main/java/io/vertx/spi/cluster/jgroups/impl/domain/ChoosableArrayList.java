@@ -27,6 +27,8 @@ public interface ChoosableArrayList<T> extends Streamable, Externalizable, Choos
 
   ChoosableArrayList<T> remove(T value);
 
+  boolean contains(T value);
+
   T first();
 
   int size();
@@ -16,55 +16,77 @@
 
 package io.vertx.spi.cluster.jgroups.impl.domain;
 
-import org.jgroups.util.Util;
+import io.vertx.spi.cluster.jgroups.impl.support.DataCodec;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class ChoosableArrayListImpl<T> implements ChoosableArrayList<T> {
 
-  private volatile List<T> values = new CopyOnWriteArrayList<>();
-  private volatile int roundRobinIndex = 0;
+  private static final Object[] EMPTY = new Object[0];
+
+  // Immutable snapshot, replaced on each write so readers never need to lock.
+  private volatile Object[] values = EMPTY;
+  private final RoundRobin roundRobin = new RoundRobin();
 
   public ChoosableArrayListImpl() {
   }
 
   @Override
-  public ChoosableArrayList<T> add(T value) {
-    values.add(value);
+  public synchronized ChoosableArrayList<T> add(T value) {
+    Object[] current = values;
+    Object[] copy = Arrays.copyOf(current, current.length + 1);
+    copy[current.length] = value;
+    values = copy;
     return this;
   }
 
   @Override
-  public ChoosableArrayList<T> remove(T value) {
-    values.remove(value);
+  public synchronized ChoosableArrayList<T> remove(T value) {
+    Object[] current = values;
+    for (int i = 0; i < current.length; i++) {
+      if (value == null ? current[i] == null : value.equals(current[i])) {
+        Object[] copy = new Object[current.length - 1];
+        System.arraycopy(current, 0, copy, 0, i);
+        System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+        values = copy;
+        break;
+      }
+    }
     return this;
   }
 
+  @Override
+  public boolean contains(T value) {
+    for (Object current : values) {
+      if (value == null ? current == null : value.equals(current)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public T first() {
-    return values.get(0);
+    return (T) values[0];
   }
 
   @Override
   public int size() {
-    return values.size();
+    return values.length;
   }
 
   @Override
   public boolean isEmpty() {
-    return values.isEmpty();
+    return values.length == 0;
   }
 
   @Override
-  public synchronized T choose() {
-    if (roundRobinIndex >= values.size()) {
-      roundRobinIndex = 0;
-    }
-    return values.get(roundRobinIndex++);
+  public T choose() {
+    return (T) roundRobin.choose(values);
   }
 
   @Override
@@ -87,25 +109,26 @@ public class ChoosableArrayListImpl<T> implements ChoosableArrayList<T> {
 
   @Override
   public void writeTo(DataOutput out) throws Exception {
-    out.writeInt(values.size());
-    for (T value : values) {
-      Util.writeObject(value, out);
+    Object[] snapshot = values;
+    out.writeInt(snapshot.length);
+    for (Object value : snapshot) {
+      DataCodec.write(value, out);
     }
   }
 
   @Override
   public void readFrom(DataInput in) throws Exception {
     int size = in.readInt();
-    T[] buffer = (T[]) new Object[size];
+    Object[] buffer = new Object[size];
     for (int i = 0; i < size; i++) {
-      buffer[i] = (T) Util.readObject(in);
+      buffer[i] = DataCodec.read(in);
     }
-    values = new CopyOnWriteArrayList<>(buffer);
+    values = buffer;
   }
 
   @Override
   public Iterator<T> iterator() {
-    return values.iterator();
+    return Collections.unmodifiableList(Arrays.asList((T[]) values)).iterator();
   }
 
   @Override
@@ -118,11 +141,13 @@ public class ChoosableArrayListImpl<T> implements ChoosableArrayList<T> {
     }
 
     ChoosableArrayListImpl that = (ChoosableArrayListImpl) o;
-    if (this.size() != that.size()) {
+    Object[] snapshot = values;
+    Object[] other = that.values;
+    if (snapshot.length != other.length) {
       return false;
     }
-    for (T value : values) {
-      if (!that.values.contains(value)) {
+    for (Object value : snapshot) {
+      if (!Arrays.asList(other).contains(value)) {
         return false;
       }
     }
@@ -131,14 +156,12 @@ public class ChoosableArrayListImpl<T> implements ChoosableArrayList<T> {
 
   @Override
   public int hashCode() {
-    int result = values != null ? values.hashCode() : 0;
-    result = 31 * result + roundRobinIndex;
-    return result;
+    return Arrays.hashCode(values);
   }
 
   @Override
   public String toString() {
-    String valuesToString = values.stream()
+    String valuesToString = Arrays.stream(values)
         .map(Object::toString)
         .collect(Collectors.joining(", "));
     return "[" + valuesToString + "]";
@@ -19,6 +19,11 @@ public class EmptyChoosableArrayList<T> implements ChoosableArrayList<T> {
     return this;
   }
 
+  @Override
+  public boolean contains(T value) {
+    return false;
+  }
+
   @Override
   public T first() {
     return null;
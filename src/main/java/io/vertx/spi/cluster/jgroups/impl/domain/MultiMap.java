@@ -3,6 +3,8 @@ package io.vertx.spi.cluster.jgroups.impl.domain;
 import io.vertx.core.spi.cluster.ChoosableIterable;
 
 import java.io.Externalizable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.function.Predicate;
 
 public interface MultiMap<K, V> extends Externalizable {
@@ -13,7 +15,15 @@ public interface MultiMap<K, V> extends Externalizable {
 
   boolean remove(K k, V v);
 
-  void removeAll(V v);
+  /**
+   * @return the keys the value may have been removed from
+   */
+  Collection<K> removeAll(V v);
 
-  void removeAllMatching(Predicate<V> p);
+  /**
+   * @return the keys values may have been removed from
+   */
+  Collection<K> removeAllMatching(Predicate<V> p);
+
+  Iterable<Map.Entry<K, ChoosableArrayList<V>>> entries();
 }
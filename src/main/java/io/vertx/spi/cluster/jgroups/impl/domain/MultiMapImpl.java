@@ -23,18 +23,32 @@ import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 public class MultiMapImpl<K, V> implements MultiMap<K,V>, LambdaLogger {
 
   private final static Logger log = LoggerFactory.getLogger(MultiMapImpl.class);
+
+  /**
+   * When set to {@code true}, lists created for new keys are {@link BufferedChoosableArrayList}s, which are cheaper
+   * to fill when many values are registered in a burst.
+   */
+  public static final String BUFFERED_PROPERTY = "vertx.jgroups.multimap.buffered";
+
   private String name;
+  private final boolean buffered = Boolean.getBoolean(BUFFERED_PROPERTY);
 
   private Map<K, ChoosableArrayList<V>> cache = new ConcurrentHashMap<>();
+  // Keys each value may be stored under. It can hold stale keys but never misses one, so removals by value only
+  // need to visit the keys listed here.
+  private Map<V, Set<K>> index = new ConcurrentHashMap<>();
 
   public MultiMapImpl() {
   }
@@ -45,55 +59,106 @@ public class MultiMapImpl<K, V> implements MultiMap<K,V>, LambdaLogger {
 
   @Override
   public void add(K k, V v) {
-    logTrace(() -> String.format("MultiMapImpl.add name = [%s] and  k = [%s], v = [%s]", name, k, v));
-    cache.compute(k, (key, oldValue) ->
-            Optional.ofNullable(oldValue)
-                .orElseGet(() -> ChoosableArrayList.emptyChoosable)
-                .add(v)
-    );
+    logTrace("MultiMapImpl.add name = [%s] and  k = [%s], v = [%s]", name, k, v);
+    cache.compute(k, (key, oldValue) -> {
+      ChoosableArrayList<V> newValue = Optional.ofNullable(oldValue)
+          .orElseGet(this::newList)
+          .add(v);
+      index(key, v);
+      return newValue;
+    });
   }
 
   @Override
   public ChoosableArrayList<V> get(K k) {
     ChoosableArrayList<V> v = cache.getOrDefault(k, ChoosableArrayList.emptyChoosable);
-    logTrace(() -> String.format("MultiMapImpl.get name = [%s] and  k = [%s], v = [%s]", name, k, v));
+    logTrace("MultiMapImpl.get name = [%s] and  k = [%s], v = [%s]", name, k, v);
     return v;
   }
 
   @Override
   public boolean remove(K k, V v) {
-    logTrace(() -> String.format("MultiMapImpl.remove name = [%s] and  k = [%s], v = [%s]", name, k, v));
+    logTrace("MultiMapImpl.remove name = [%s] and  k = [%s], v = [%s]", name, k, v);
     final boolean[] result = {false};
     cache.computeIfPresent(k, (key, oldValue) -> {
       result[0] = true;
-      return oldValue.remove(v);
+      ChoosableArrayList<V> newValue = oldValue.remove(v);
+      if (!newValue.contains(v)) {
+        unindex(key, v);
+      }
+      return newValue.isEmpty() ? null : newValue;
     });
     return result[0];
   }
 
   @Override
-  public void removeAll(V v) {
-    logTrace(() -> String.format("MultiMapImpl.removeAll name = [%s] and  v = [%s]", name, v));
-    cache.replaceAll((k, oldValue) -> oldValue.remove(v));
+  public Collection<K> removeAll(V v) {
+    logTrace("MultiMapImpl.removeAll name = [%s] and  v = [%s]", name, v);
+    Set<K> indexed = index.get(v);
+    if (indexed == null) {
+      return Collections.emptySet();
+    }
+    Set<K> keys = new HashSet<>(indexed);
+    for (K k : keys) {
+      // Unindexed in the compute mutating the list, an add of the key then lands either before both or after both.
+      cache.compute(k, (key, oldValue) -> {
+        unindex(key, v);
+        if (oldValue == null) {
+          return null;
+        }
+        ChoosableArrayList<V> newValue = oldValue;
+        int size;
+        do {
+          size = newValue.size();
+          newValue = newValue.remove(v);
+        } while (newValue.size() < size);
+        return newValue.isEmpty() ? null : newValue;
+      });
+    }
+    return keys;
   }
 
   @Override
-  public void removeAllMatching(Predicate<V> p) {
-    logTrace(() -> String.format("MultiMapImpl.removeAllMatching name = [%s]", name));
-    cache.replaceAll((k, oldValue) -> {
-      for (Iterator<V> iterator = oldValue.iterator(); iterator.hasNext(); ) {
-        V v = iterator.next();
-        if (p.test(v)) {
-          iterator.remove();
-        }
+  public Collection<K> removeAllMatching(Predicate<V> p) {
+    logTrace("MultiMapImpl.removeAllMatching name = [%s]", name);
+    Set<K> keys = new HashSet<>();
+    // The predicate is tested once per distinct value instead of once per entry.
+    for (V v : index.keySet()) {
+      if (p.test(v)) {
+        keys.addAll(removeAll(v));
       }
-      return oldValue;
+    }
+    return keys;
+  }
+
+  @Override
+  public Iterable<Map.Entry<K, ChoosableArrayList<V>>> entries() {
+    return Collections.unmodifiableMap(cache).entrySet();
+  }
+
+  private void index(K k, V v) {
+    // Atomic with the removal of an emptied set, so the key never goes to a set no longer in the index.
+    index.compute(v, (value, keys) -> {
+      Set<K> newKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+      newKeys.add(k);
+      return newKeys;
+    });
+  }
+
+  private void unindex(K k, V v) {
+    index.computeIfPresent(v, (value, keys) -> {
+      keys.remove(k);
+      return keys.isEmpty() ? null : keys;
     });
   }
 
+  private ChoosableArrayList<V> newList() {
+    return buffered ? new BufferedChoosableArrayList<>() : new ChoosableArrayListImpl<>();
+  }
+
   @Override
   public void writeExternal(ObjectOutput out) throws IOException {
-    logTrace(() -> String.format("MultiMapImpl.writeExternal name = [%s] and  cache = {%s}", name, cache));
+    logTrace("MultiMapImpl.writeExternal name = [%s] and  cache = {%s}", name, cache);
     out.writeInt(cache.size());
     out.writeUTF(name);
     for (Map.Entry<K, ChoosableArrayList<V>> entry : cache.entrySet()) {
@@ -104,13 +169,16 @@ public class MultiMapImpl<K, V> implements MultiMap<K,V>, LambdaLogger {
 
   @Override
   public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-    logTrace(() -> String.format("MultiMapImpl.readExternal name = [%s] and  cache = {%s}", name, cache));
+    logTrace("MultiMapImpl.readExternal name = [%s] and  cache = {%s}", name, cache);
     int size = in.readInt();
     name = in.readUTF();
     for (int i = 0; i < size; i++) {
       K key = (K) in.readObject();
       ChoosableArrayList<V> value = (ChoosableArrayList<V>) in.readObject();
       cache.put(key, value);
+      for (V v : value) {
+        index(key, v);
+      }
     }
   }
 
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.domain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock free round robin over the snapshots of a {@link ChoosableArrayList}.
+ * <p>
+ * The position is advanced with a compare-and-set, and restarts from the first value once past the last one: the
+ * list may have shrunk since the previous choice. A counter taken modulo the size would skip values after a change
+ * and skew once it wraps around.
+ */
+final class RoundRobin {
+
+  private final AtomicInteger position = new AtomicInteger();
+
+  /**
+   * @return the next value of {@code snapshot}, or {@code null} when it is empty
+   */
+  Object choose(Object[] snapshot) {
+    if (snapshot.length == 0) {
+      return null;
+    }
+    while (true) {
+      int current = position.get();
+      int index = current < snapshot.length ? current : 0;
+      if (position.compareAndSet(current, index + 1)) {
+        return snapshot[index];
+      }
+    }
+  }
+}
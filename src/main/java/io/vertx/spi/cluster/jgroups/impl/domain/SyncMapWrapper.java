@@ -69,25 +69,25 @@ public class SyncMapWrapper<K, V> implements Map<K, V>, LambdaLogger {
 
   @Override
   public V put(K key, V value) {
-    logTrace(() -> "SyncMap.put name [" + name + "], k = [" + key + "], v = [" + value + "]");
+    logTrace("SyncMap.put name [%s], k = [%s], v = [%s]", name, key, value);
     return executorService.remoteExecute(RpcServerObjDelegate.CALL_MAP_PUT.method(name, key, value), TIMEOUT);
   }
 
   @Override
   public V remove(Object key) {
-    logTrace(() -> "SyncMap.remove name [" + name + "], k = [" + key + "]");
+    logTrace("SyncMap.remove name [%s], k = [%s]", name, key);
     return executorService.remoteExecute(RpcServerObjDelegate.CALL_MAP_REMOVE.method(name, key), TIMEOUT);
   }
 
   @Override
   public void putAll(Map<? extends K, ? extends V> data) {
-    logTrace(() -> "SyncMap.putAll name [" + name + "], data = [" + data + "]");
+    logTrace("SyncMap.putAll name [%s], data = [%s]", name, data);
     executorService.remoteExecute(RpcServerObjDelegate.CALL_MAP_PUTALL.method(name, data), TIMEOUT);
   }
 
   @Override
   public void clear() {
-    logTrace(() -> "SyncMap.clear name [" + name + "]");
+    logTrace("SyncMap.clear name [%s]", name);
     executorService.remoteExecute(RpcServerObjDelegate.CALL_MAP_CLEAR.method(name), TIMEOUT);
   }
 
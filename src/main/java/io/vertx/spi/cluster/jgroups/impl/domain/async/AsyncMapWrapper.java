@@ -23,14 +23,17 @@ import io.vertx.core.Handler;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import io.vertx.spi.cluster.jgroups.impl.services.MapPartitioner;
 import io.vertx.spi.cluster.jgroups.impl.services.RpcExecutorService;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterMetrics;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import io.vertx.spi.cluster.jgroups.impl.support.NearCache;
+import io.vertx.spi.cluster.jgroups.impl.support.OperationMetrics;
+import org.jgroups.blocks.MethodCall;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 
 import static io.vertx.spi.cluster.jgroups.impl.services.RpcServerObjDelegate.*;
 
@@ -41,80 +44,148 @@ public class AsyncMapWrapper<K, V> implements AsyncMap<K, V>, LambdaLogger {
   private final String name;
   private final Map<K, V> map;
   private final RpcExecutorService executorService;
+  private final MapPartitioner partitioner;
+  private final boolean partitioned;
+  private final NearCache<K, V> nearCache;
+  private final AckLevel ack;
+  private final OperationMetrics localGets;
+  // Created once, a get hands it to the executor along with its key rather than a lambda capturing the key.
+  private final Function<K, V> localGet = this::localGet;
 
   public AsyncMapWrapper(String name, Map<K, V> map, RpcExecutorService executorService) {
+    this(name, map, executorService, MapPartitioner.replicated(), null);
+  }
+
+  public AsyncMapWrapper(String name, Map<K, V> map, RpcExecutorService executorService, MapPartitioner partitioner, NearCache<K, V> nearCache) {
+    this(name, map, executorService, partitioner, nearCache, new ClusterMetrics(false));
+  }
+
+  /**
+   * @param nearCache the copies of entries owned by other members, {@code null} for none
+   * @param metrics   records the reads served from the local copy of the map
+   */
+  public AsyncMapWrapper(String name, Map<K, V> map, RpcExecutorService executorService, MapPartitioner partitioner, NearCache<K, V> nearCache,
+                         ClusterMetrics metrics) {
     this.name = name;
     this.map = map;
     this.executorService = executorService;
+    this.partitioner = partitioner;
+    this.partitioned = partitioner.partitioned(name);
+    this.nearCache = nearCache;
+    this.ack = AckLevel.of(name);
+    this.localGets = metrics.operation(name, "localGet");
   }
 
   @Override
   public void get(K k, Handler<AsyncResult<V>> handler) {
-    logTrace(() -> "get k = [" + k + "], handler = [" + handler + "]");
-    executorService.runAsync(() -> map.get(k), handler);
+    logTrace("get k = [%s], handler = [%s]", k, handler);
+    if (!partitioned || partitioner.owns(k)) {
+      executorService.runLocal(localGet, k, handler);
+    } else if (nearCache == null) {
+      executorService.remoteRead(partitioner.owners(k), CALL_MAP_GET.method(name, k, null), handler);
+    } else {
+      Optional<V> cached = nearCache.get(k);
+      if (cached != null) {
+        executorService.runLocal(() -> cached.orElse(null), handler);
+        return;
+      }
+      long stamp = nearCache.stamp();
+      executorService.<V>remoteRead(partitioner.owners(k), CALL_MAP_GET.method(name, k, partitioner.address()), (ar) -> {
+        if (ar.succeeded()) {
+          nearCache.put(k, ar.result(), stamp);
+        }
+        handler.handle(ar);
+      });
+    }
   }
 
   @Override
   public void put(K k, V v, Handler<AsyncResult<Void>> handler) {
-    logTrace(() -> "put k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_PUT.method(name, k, v), handler);
+    logTrace("put k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    execute(k, CALL_MAP_PUT.method(name, k, v), handler);
   }
 
   @Override
   public void put(K k, V v, long timeout, Handler<AsyncResult<Void>> handler) {
-    handler.handle(Future.failedFuture(new UnsupportedOperationException()));
+    if (isTraceEnabled()) {
+      logTrace(() -> "put k = [" + k + "], v = [" + v + "], timeout = [" + timeout + "], handler = [" + handler + "]");
+    }
+    execute(k, CALL_MAP_PUT_TTL.method(name, k, v, timeout), handler);
   }
 
   @Override
   public void putIfAbsent(K k, V v, Handler<AsyncResult<V>> handler) {
-    logTrace(() -> "putIfAbsent k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_PUTIFABSENT.method(name, k, v), handler);
+    logTrace("putIfAbsent k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    execute(k, CALL_MAP_PUTIFABSENT.method(name, k, v), handler);
   }
 
   @Override
   public void putIfAbsent(K k, V v, long timeout, Handler<AsyncResult<V>> handler) {
-    handler.handle(Future.failedFuture(new UnsupportedOperationException()));
+    if (isTraceEnabled()) {
+      logTrace(() -> "putIfAbsent k = [" + k + "], v = [" + v + "], timeout = [" + timeout + "], handler = [" + handler + "]");
+    }
+    execute(k, CALL_MAP_PUTIFABSENT_TTL.method(name, k, v, timeout), handler);
   }
 
   @Override
   public void remove(K k, Handler<AsyncResult<V>> handler) {
-    logTrace(() -> "remove k = [" + k + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_REMOVE.method(name, k), handler);
+    logTrace("remove k = [%s], handler = [%s]", k, handler);
+    execute(k, CALL_MAP_REMOVE.method(name, k), handler);
   }
 
   @Override
   public void removeIfPresent(K k, V v, Handler<AsyncResult<Boolean>> handler) {
-    logTrace(() -> "removeIfPresent k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_REMOVEIFPRESENT.method(name, k, v), handler);
+    logTrace("removeIfPresent k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    execute(k, CALL_MAP_REMOVEIFPRESENT.method(name, k, v), handler);
   }
 
   @Override
   public void replace(K k, V v, Handler<AsyncResult<V>> handler) {
-    logTrace(() -> "replace k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_REPLACE.method(name, k, v), handler);
+    logTrace("replace k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    execute(k, CALL_MAP_REPLACE.method(name, k, v), handler);
   }
 
   @Override
   public void replaceIfPresent(K k, V oldValue, V newValue, Handler<AsyncResult<Boolean>> handler) {
-    logTrace(() -> "replaceIfPresent k = [" + k + "], oldValue = [" + oldValue + "], newValue = [" + newValue + "], handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_REPLACEIFPRESENT.method(name, k, oldValue, newValue), handler);
+    logTrace("replaceIfPresent k = [%s], oldValue = [%s], newValue = [%s], handler = [%s]", k, oldValue, newValue, handler);
+    execute(k, CALL_MAP_REPLACEIFPRESENT.method(name, k, oldValue, newValue), handler);
   }
 
   @Override
   public void clear(Handler<AsyncResult<Void>> handler) {
-    logTrace(() -> "clear handler = [" + handler + "]");
-    executorService.remoteExecute(CALL_MAP_CLEAR.method(name), handler);
+    logTrace("clear handler = [%s]", handler);
+    if (nearCache != null) {
+      nearCache.clear();
+    }
+    executorService.remoteExecute(CALL_MAP_CLEAR.method(name), ack, handler);
   }
 
   @Override
   public void size(Handler<AsyncResult<Integer>> handler) {
-    logTrace(() -> "size handler = [" + handler + "]");
-    executorService.runAsync(map::size, handler);
+    logTrace("size handler = [%s]", handler);
+    if (partitioned) {
+      // Each entry counted once, by its primary owner.
+      executorService.<Integer>remoteCollect(CALL_MAP_SIZE.method(name), (ar) -> handler.handle(ar.map((sizes) -> sizes.stream().mapToInt(Integer::intValue).sum())));
+    } else {
+      executorService.runLocal(map::size, handler);
+    }
   }
 
   @Override
   public void keys(Handler<AsyncResult<Set<K>>> handler) {
-    executorService.runAsync(map::keySet, handler);
+    if (partitioned) {
+      executorService.<Object[]>remoteCollect(CALL_MAP_KEYS.method(name), (ar) -> handler.handle(ar.map((keys) -> {
+        Set<K> union = new HashSet<>();
+        keys.forEach((owned) -> {
+          for (Object key : owned) {
+            union.add((K) key);
+          }
+        });
+        return union;
+      })));
+    } else {
+      executorService.runLocal(map::keySet, handler);
+    }
   }
 
   @Override
@@ -159,6 +230,28 @@ public class AsyncMapWrapper<K, V> implements AsyncMap<K, V>, LambdaLogger {
     }).setHandler(handler);
   }
 
+  private V localGet(K k) {
+    if (localGets == null) {
+      return map.get(k);
+    }
+    long start = System.nanoTime();
+    V v = map.get(k);
+    localGets.record(System.nanoTime() - start, true);
+    return v;
+  }
+
+  private <T> void execute(K k, MethodCall action, Handler<AsyncResult<T>> handler) {
+    if (nearCache != null) {
+      // Our own writes are visible to our next reads, whenever the owners' invalidation comes in.
+      nearCache.invalidate(k);
+    }
+    if (partitioned) {
+      executorService.remoteExecute(partitioner.owners(k), action, ack, handler);
+    } else {
+      executorService.remoteExecute(action, ack, handler);
+    }
+  }
+
   @Override
   public Logger log() {
     return LOG;
@@ -23,10 +23,14 @@ import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.spi.cluster.AsyncMultiMap;
 import io.vertx.core.spi.cluster.ChoosableIterable;
 import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
 import io.vertx.spi.cluster.jgroups.impl.services.RpcExecutorService;
 import io.vertx.spi.cluster.jgroups.impl.services.RpcServerObjDelegate;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterMetrics;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import io.vertx.spi.cluster.jgroups.impl.support.OperationMetrics;
 
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 public class AsyncMultiMapWrapper<K, V> implements AsyncMultiMap<K, V>, LambdaLogger {
@@ -36,38 +40,62 @@ public class AsyncMultiMapWrapper<K, V> implements AsyncMultiMap<K, V>, LambdaLo
   private final String name;
   private final MultiMap<K, V> map;
   private final RpcExecutorService executorService;
+  private final AckLevel ack;
+  private final OperationMetrics localGets;
+  // Created once, a get hands it to the executor along with its key rather than a lambda capturing the key.
+  private final Function<K, ChoosableIterable<V>> localGet = this::localGet;
 
   public AsyncMultiMapWrapper(String name, MultiMap<K, V> map, RpcExecutorService executorService) {
+    this(name, map, executorService, AckLevel.of(name));
+  }
+
+  public AsyncMultiMapWrapper(String name, MultiMap<K, V> map, RpcExecutorService executorService, AckLevel ack) {
+    this(name, map, executorService, ack, new ClusterMetrics(false));
+  }
+
+  public AsyncMultiMapWrapper(String name, MultiMap<K, V> map, RpcExecutorService executorService, AckLevel ack, ClusterMetrics metrics) {
     this.name = name;
     this.map = map;
     this.executorService = executorService;
+    this.ack = ack;
+    this.localGets = metrics.operation(name, "localGet");
   }
 
   @Override
   public void add(K k, V v, Handler<AsyncResult<Void>> handler) {
-    logTrace(() -> "add k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_ADD.method(name, k, v), handler);
+    logTrace("add k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_ADD.method(name, k, v), ack, handler);
   }
 
   public void get(K k, Handler<AsyncResult<ChoosableIterable<V>>> handler) {
-    logTrace(() -> "get k = [" + k + "], handler = [" + handler + "]");
-    executorService.runAsync(() -> map.get(k), handler);
+    logTrace("get k = [%s], handler = [%s]", k, handler);
+    executorService.runLocal(localGet, k, handler);
+  }
+
+  private ChoosableIterable<V> localGet(K k) {
+    if (localGets == null) {
+      return map.get(k);
+    }
+    long start = System.nanoTime();
+    ChoosableIterable<V> values = map.get(k);
+    localGets.record(System.nanoTime() - start, true);
+    return values;
   }
 
   @Override
   public void remove(K k, V v, Handler<AsyncResult<Boolean>> handler) {
-    logTrace(() -> "remove k = [" + k + "], v = [" + v + "], handler = [" + handler + "]");
-    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE.method(name, k, v), handler);
+    logTrace("remove k = [%s], v = [%s], handler = [%s]", k, v, handler);
+    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE.method(name, k, v), ack, handler);
   }
 
   @Override
   public void removeAllForValue(V v, Handler<AsyncResult<Void>> handler) {
-    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE_ALL.method(name, v), handler);
+    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE_ALL.method(name, v), ack, handler);
   }
 
   @Override
   public void removeAllMatching(Predicate<V> p, Handler<AsyncResult<Void>> handler) {
-    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE_ALL_MATCHING.method(name, p), handler);
+    executorService.remoteExecute(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE_ALL_MATCHING.method(name, p), ack, handler);
   }
 
   @Override
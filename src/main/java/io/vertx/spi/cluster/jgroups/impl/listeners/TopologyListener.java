@@ -21,6 +21,7 @@ import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import io.vertx.core.spi.cluster.NodeListener;
 import io.vertx.spi.cluster.jgroups.impl.support.ArrayUtils;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterEvents;
 import io.vertx.spi.cluster.jgroups.impl.support.ComparedValue;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
 import org.jgroups.*;
@@ -28,6 +29,8 @@ import org.jgroups.*;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -44,6 +47,7 @@ public class TopologyListener extends ReceiverAdapter implements LambdaLogger {
   private volatile Address[] members = {};
 
   private Optional<NodeListener> nodeListener = Optional.empty();
+  private final List<Consumer<List<Address>>> viewListeners = new CopyOnWriteArrayList<>();
 
   public TopologyListener(Vertx vertx) {
     this.vertx = vertx;
@@ -72,6 +76,15 @@ public class TopologyListener extends ReceiverAdapter implements LambdaLogger {
       viewId = view.getViewId().copy();
       Address[] oldMembers = members;
       members = ArrayUtils.copySortAndFilter(view.getMembersRaw());
+      List<Address> sortedMembers = Arrays.asList(members);
+      ClusterEvents.ViewChange event = null;
+      if (ClusterEvents.EVENTS.viewEnabled()) {
+        List<ComparedValue<Address>> changes = ArrayUtils.compareSorted(oldMembers, members);
+        event = ClusterEvents.EVENTS.viewChange(members.length,
+            (int) changes.stream().filter(ComparedValue::isRight).count(),
+            (int) changes.stream().filter(ComparedValue::isLeft).count());
+      }
+      viewListeners.forEach(listener -> listener.accept(sortedMembers));
       nodeListener.ifPresent(listener -> {
         List<ComparedValue<Address>> comparedValues = ArrayUtils.compareSorted(oldMembers, members);
         comparedValues
@@ -91,6 +104,9 @@ public class TopologyListener extends ReceiverAdapter implements LambdaLogger {
               vertx.executeBlocking((future) -> listener.nodeAdded(right.toString()), (h) -> Function.identity());
             });
       });
+      if (event != null) {
+        event.dispatched();
+      }
     }
 
   }
@@ -100,6 +116,16 @@ public class TopologyListener extends ReceiverAdapter implements LambdaLogger {
     this.nodeListener = Optional.of(nodeListener);
   }
 
+  /**
+   * Calls {@code listener} with the sorted members of the current view, then with those of each new view.
+   */
+  public void addViewListener(Consumer<List<Address>> listener) {
+    synchronized (lock) {
+      viewListeners.add(listener);
+      listener.accept(Arrays.asList(members));
+    }
+  }
+
   public List<String> getNodes() {
     logDebug(() -> String.format("Get Nodes from topology [%s]", Arrays.toString(members)));
     return Arrays.stream(members)
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import org.jgroups.blocks.ResponseMode;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Number of members a write waits for before its handler is completed.
+ * <p>
+ * The write is applied by all the members whatever the level, a lower level only completes it sooner, before some
+ * members, possibly this one, have applied it.
+ */
+public enum AckLevel {
+
+  /**
+   * Every member applied the write.
+   */
+  ALL(ResponseMode.GET_ALL),
+  /**
+   * A majority of the members applied the write.
+   */
+  MAJORITY(ResponseMode.GET_MAJORITY),
+  /**
+   * A member applied the write.
+   */
+  FIRST(ResponseMode.GET_FIRST),
+  /**
+   * The write has been sent, its result is always {@code null}.
+   */
+  NONE(ResponseMode.GET_NONE);
+
+  /**
+   * Default level of the writes, {@code all}, {@code majority}, {@code first} or {@code none}. The level of the writes
+   * of a map can be set with this property followed by a dot and the name of the map.
+   */
+  public static final String PROPERTY = "vertx.jgroups.ack";
+
+  private final ResponseMode mode;
+
+  AckLevel(ResponseMode mode) {
+    this.mode = mode;
+  }
+
+  public ResponseMode mode() {
+    return mode;
+  }
+
+  /**
+   * @return the level of the writes of the map {@code name}
+   */
+  public static AckLevel of(String name) {
+    String property = System.getProperty(PROPERTY + "." + name) != null ? PROPERTY + "." + name : PROPERTY;
+    return parse(property, System.getProperty(property, "all"));
+  }
+
+  /**
+   * Checks the levels set with the {@link #PROPERTY}, rather than failing the first write of a map.
+   *
+   * @throws IllegalArgumentException naming the property and the allowed levels
+   */
+  public static void validate() {
+    for (String property : System.getProperties().stringPropertyNames()) {
+      if (property.equals(PROPERTY) || property.startsWith(PROPERTY + ".")) {
+        parse(property, System.getProperty(property));
+      }
+    }
+  }
+
+  private static AckLevel parse(String property, String level) {
+    try {
+      return valueOf(level.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      String allowed = Arrays.stream(values()).map((ack) -> ack.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", "));
+      throw new IllegalArgumentException(String.format("Invalid value [%s] of [%s], expected one of %s", level, property, allowed));
+    }
+  }
+}
@@ -19,19 +19,27 @@ package io.vertx.spi.cluster.jgroups.impl.services;
 import io.vertx.core.*;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterEvents;
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterMetrics;
 import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import io.vertx.spi.cluster.jgroups.impl.support.OperationMetrics;
+import org.jgroups.Address;
 import org.jgroups.Message;
 import org.jgroups.blocks.MethodCall;
 import org.jgroups.blocks.RequestOptions;
 import org.jgroups.blocks.ResponseMode;
 import org.jgroups.blocks.RpcDispatcher;
+import org.jgroups.util.FutureListener;
 import org.jgroups.util.NotifyingFuture;
 import org.jgroups.util.Rsp;
 import org.jgroups.util.RspList;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -40,14 +48,52 @@ public class DefaultRpcExecutorService implements RpcExecutorService, LambdaLogg
   private static final Logger LOG = LoggerFactory.getLogger(DefaultRpcExecutorService.class);
   private static final Message.Flag[] JGROUPS_FLAGS = new Message.Flag[]{Message.Flag.NO_TOTAL_ORDER};
 
+  public static final String BATCH_SIZE_PROPERTY = "vertx.jgroups.rpc.batch.size";
+  public static final String BATCH_WINDOW_PROPERTY = "vertx.jgroups.rpc.batch.window";
+
+  /**
+   * Sends the read only calls out of band: they don't queue behind the writes a member delivers in order, and are
+   * handled concurrently. A read may then overtake a write sent before it but not completed yet.
+   */
+  public static final String OOB_READS_PROPERTY = "vertx.jgroups.rpc.oob.reads";
+
+  private static final Message.Flag[] JGROUPS_OOB_READ_FLAGS = new Message.Flag[]{Message.Flag.NO_TOTAL_ORDER, Message.Flag.OOB};
+
   private final Vertx vertx;
   private final RpcDispatcher dispatcher;
+  private final ClusterMetrics metrics;
+
+  private final int batchSize;
+  private final long batchWindow;
+  private final boolean oobReads = Boolean.getBoolean(OOB_READS_PROPERTY);
+  private final Object batchLock = new Object();
+  private List<PendingCall> batch = new ArrayList<>();
+  private long batchTimer = -1;
 
   private volatile boolean active = true;
 
   public DefaultRpcExecutorService(Vertx vertx, RpcDispatcher dispatcher) {
+    this(vertx, dispatcher, new ClusterMetrics(false));
+  }
+
+  public DefaultRpcExecutorService(Vertx vertx, RpcDispatcher dispatcher, ClusterMetrics metrics) {
+    this(vertx, dispatcher, Integer.getInteger(BATCH_SIZE_PROPERTY, 1), Long.getLong(BATCH_WINDOW_PROPERTY, 1L), metrics);
+  }
+
+  /**
+   * @param batchSize   max number of async calls shipped in a single RPC, batching is disabled when lower than 2.
+   * @param batchWindow max time in milliseconds the first call of a batch waits for others to join it.
+   */
+  public DefaultRpcExecutorService(Vertx vertx, RpcDispatcher dispatcher, int batchSize, long batchWindow) {
+    this(vertx, dispatcher, batchSize, batchWindow, new ClusterMetrics(false));
+  }
+
+  public DefaultRpcExecutorService(Vertx vertx, RpcDispatcher dispatcher, int batchSize, long batchWindow, ClusterMetrics metrics) {
     this.vertx = vertx;
     this.dispatcher = dispatcher;
+    this.metrics = metrics;
+    this.batchSize = batchSize;
+    this.batchWindow = Math.max(1L, batchWindow);
   }
 
   @Override
@@ -61,19 +107,52 @@ public class DefaultRpcExecutorService implements RpcExecutorService, LambdaLogg
     }, handler);
   }
 
+  @Override
+  public <T> void runLocal(Supplier<T> supplier, Handler<AsyncResult<T>> handler) {
+    Context context = vertx.getOrCreateContext();
+    try {
+      complete(context, handler, Future.succeededFuture(supplier.get()));
+    } catch (Exception e) {
+      complete(context, handler, Future.failedFuture(e));
+    }
+  }
+
+  @Override
+  public <A, T> void runLocal(Function<A, T> read, A arg, Handler<AsyncResult<T>> handler) {
+    Context context = vertx.getOrCreateContext();
+    try {
+      complete(context, handler, Future.succeededFuture(read.apply(arg)));
+    } catch (Exception e) {
+      complete(context, handler, Future.failedFuture(e));
+    }
+  }
+
   @Override
   public <T> T remoteExecute(MethodCall action, long timeout) {
-    logTrace(() -> String.format("RemoteExecute sync action %s with timeout %s", action, timeout));
+    if (isTraceEnabled()) {
+      logTrace(() -> String.format("RemoteExecute sync action %s with timeout %s", action, timeout));
+    }
     RequestOptions options = new RequestOptions()
         .setFlags(JGROUPS_FLAGS)
         .setMode(ResponseMode.GET_ALL)
         .setTimeout(timeout);
 
+    // Calls still waiting in the batch have been issued first, they must reach the members first.
+    flushBatch();
+    OperationMetrics operation = operation(action);
+    long start = operation != null ? System.nanoTime() : 0;
     try {
-      NotifyingFuture<RspList<T>> notifyingFuture = this.<T>execute(action, options);
+      NotifyingFuture<RspList<T>> notifyingFuture = this.<T>execute(action, options, null);
       RspList<T> rspList = notifyingFuture.get(timeout, TimeUnit.MILLISECONDS);
-      return futureDone(rspList);
+      T result = futureDone(rspList);
+      if (operation != null) {
+        operation.record(System.nanoTime() - start, true);
+      }
+      return result;
     } catch (Exception e) {
+      if (operation != null) {
+        operation.record(System.nanoTime() - start, false);
+      }
       throw new VertxException(e);
     }
   }
@@ -84,22 +163,95 @@ public class DefaultRpcExecutorService implements RpcExecutorService, LambdaLogg
   }
 
   @Override
-  public <T> void remoteExecute(MethodCall action, long timeout, Handler<AsyncResult<T>> handler) {
-    logTrace(() -> String.format("RemoteExecute action %s, handler %s", action, handler));
+  public <T> void remoteExecute(MethodCall action, long timeout, Handler<AsyncResult<T>> callHandler) {
+    logTrace("RemoteExecute action %s, handler %s", action, callHandler);
+    Handler<AsyncResult<T>> handler = timed(action, callHandler);
+    if (batchSize > 1 && timeout == 0) {
+      enqueue(action, (Handler) handler);
+      return;
+    }
     RequestOptions options = new RequestOptions()
         .setFlags(JGROUPS_FLAGS)
         .setMode(ResponseMode.GET_ALL)
         .setTimeout(timeout);
+    Context context = vertx.getOrCreateContext();
+    try {
+      // The listener runs once the RspList is complete, so it is processed right away on the JGroups thread
+      // and only the handler is dispatched on the caller context.
+      this.<T>execute(action, options, (future) -> {
+        try {
+          complete(context, handler, Future.succeededFuture(futureDone(future.get())));
+        } catch (Exception e) {
+          complete(context, handler, Future.failedFuture(e));
+        }
+      });
+    } catch (Exception e) {
+      handler.handle(Future.failedFuture(e));
+    }
+  }
+
+  @Override
+  public <T> void remoteExecute(MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler) {
+    if (ack == AckLevel.ALL) {
+      this.remoteExecute(action, handler);
+      return;
+    }
+    logTrace("RemoteExecute action %s with ack %s, handler %s", action, ack, handler);
+    // Not batched, a batch waits for all the members.
+    this.<T, T>remoteExecute(null, action, ack.mode(), false, this::futureDone, handler);
+  }
+
+  @Override
+  public <T> void remoteExecute(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler) {
+    this.remoteExecute(destinations, action, AckLevel.ALL, handler);
+  }
+
+  @Override
+  public <T> void remoteExecute(Collection<Address> destinations, MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler) {
+    logTrace("RemoteExecute action %s on %s with ack %s, handler %s", action, destinations, ack, handler);
+    this.<T, T>remoteExecute(destinations, action, ack.mode(), false, this::futureDone, handler);
+  }
+
+  @Override
+  public <T> void remoteRead(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler) {
+    logTrace("RemoteRead action %s on %s, handler %s", action, destinations, handler);
+    this.<T, T>remoteExecute(destinations, action, ResponseMode.GET_FIRST, true, this::futureDone, handler);
+  }
+
+  @Override
+  public <T> void remoteCollect(MethodCall action, Handler<AsyncResult<List<T>>> handler) {
+    logTrace("RemoteCollect action %s, handler %s", action, handler);
+    this.<T, List<T>>remoteExecute(null, action, ResponseMode.GET_ALL, true, this::futureCollect, handler);
+  }
+
+  private <T, R> void remoteExecute(Collection<Address> destinations, MethodCall action, ResponseMode mode, boolean read,
+                                    Function<RspList<T>, R> done, Handler<AsyncResult<R>> callHandler) {
+    Handler<AsyncResult<R>> handler = timed(action, callHandler);
+    // A few destinations get their own unicast each, rather than a multicast all the members receive and drop.
+    RequestOptions options = new RequestOptions()
+        .setFlags(read && oobReads ? JGROUPS_OOB_READ_FLAGS : JGROUPS_FLAGS)
+        .setMode(mode)
+        .setAnycasting(destinations != null)
+        .setTimeout(0);
+    Context context = vertx.getOrCreateContext();
+    // Not batched, calls still waiting in the batch must reach the members first. An out of band read wouldn't wait
+    // for them anyway.
+    if (!read || !oobReads) {
+      flushBatch();
+    }
     try {
-      NotifyingFuture<RspList<T>> notifyingFuture = this.<T>execute(action, options);
-      notifyingFuture.setListener((future) -> vertx.executeBlocking((f) -> {
+      if (mode == ResponseMode.GET_NONE) {
+        this.<T>internalExecute(destinations, action, options, null);
+        complete(context, handler, Future.succeededFuture());
+        return;
+      }
+      this.<T>internalExecute(destinations, action, options, (future) -> {
         try {
-          RspList<T> rspList = future.get();
-          f.complete(futureDone(rspList));
+          complete(context, handler, Future.succeededFuture(done.apply(future.get())));
         } catch (Exception e) {
-          f.fail(e);
+          complete(context, handler, Future.failedFuture(e));
         }
-      }, handler));
+      });
     } catch (Exception e) {
       handler.handle(Future.failedFuture(e));
     }
@@ -107,25 +259,153 @@ public class DefaultRpcExecutorService implements RpcExecutorService, LambdaLogg
 
   @Override
   public void stop() {
+    flushBatch();
     active = false;
   }
 
-  private <T> NotifyingFuture<RspList<T>> execute(MethodCall action, RequestOptions options) throws Exception {
-    return this.<T>internalExecute(action, options);
+  private void enqueue(MethodCall action, Handler<AsyncResult<Object>> handler) {
+    PendingCall call = new PendingCall(action, handler, vertx.getOrCreateContext());
+    synchronized (batchLock) {
+      batch.add(call);
+      if (batch.size() >= batchSize) {
+        flushBatch();
+      } else if (batchTimer == -1) {
+        batchTimer = vertx.setTimer(batchWindow, (id) -> flushBatch());
+      }
+    }
   }
 
-  private <T> NotifyingFuture<RspList<T>> internalExecute(MethodCall action, RequestOptions options) throws Exception {
-    if (active) {
-      return dispatcher.<T>callRemoteMethodsWithFuture(null, action, options);
-    } else {
+  private void flushBatch() {
+    // The send happens under the lock, so batches leave this node in the order they were filled.
+    synchronized (batchLock) {
+      if (batchTimer != -1) {
+        vertx.cancelTimer(batchTimer);
+        batchTimer = -1;
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+      List<PendingCall> calls = batch;
+      batch = new ArrayList<>();
+      sendBatch(calls);
+    }
+  }
+
+  private void sendBatch(List<PendingCall> calls) {
+    if (isTraceEnabled()) {
+      logTrace(() -> String.format("RemoteExecute batch of %d actions", calls.size()));
+    }
+    List<MethodCall> actions = new ArrayList<>(calls.size());
+    for (PendingCall call : calls) {
+      actions.add(call.action);
+    }
+    RequestOptions options = new RequestOptions()
+        .setFlags(JGROUPS_FLAGS)
+        .setMode(ResponseMode.GET_ALL)
+        .setTimeout(0);
+    try {
+      this.<Object[]>execute(RpcServerObjDelegate.CALL_BATCH.apply(actions), options, (future) -> {
+        RspList<Object[]> rspList;
+        try {
+          rspList = future.get();
+        } catch (Exception e) {
+          calls.forEach((call) -> call.complete(Future.failedFuture(e)));
+          return;
+        }
+        for (int i = 0; i < calls.size(); i++) {
+          calls.get(i).complete(Future.succeededFuture(batchDone(rspList, i)));
+        }
+      });
+    } catch (Exception e) {
+      calls.forEach((call) -> call.complete(Future.failedFuture(e)));
+    }
+  }
+
+  private <T> NotifyingFuture<RspList<T>> execute(MethodCall action, RequestOptions options, FutureListener<RspList<T>> listener) throws Exception {
+    return this.<T>internalExecute(null, action, options, listener);
+  }
+
+  /**
+   * @param listener called once the call completed, may be {@code null}
+   */
+  private <T> NotifyingFuture<RspList<T>> internalExecute(Collection<Address> destinations, MethodCall action, RequestOptions options,
+                                                          FutureListener<RspList<T>> listener) throws Exception {
+    if (!active) {
       throw new VertxException("Executor service is closed");
     }
+    ClusterEvents.Rpc event = ClusterEvents.EVENTS.rpc(RpcServerObjDelegate.methodName(action.getId()), mapName(action), options.getMode().name());
+    NotifyingFuture<RspList<T>> notifyingFuture;
+    try {
+      notifyingFuture = dispatcher.<T>callRemoteMethodsWithFuture(destinations, action, options);
+    } catch (Exception e) {
+      if (event != null) {
+        event.sent();
+        event.completed(0, false);
+      }
+      throw e;
+    }
+    if (event != null) {
+      event.sent();
+      if (options.getMode() == ResponseMode.GET_NONE) {
+        event.completed(0, true);
+      } else {
+        listener = recorded(event, listener);
+      }
+    }
+    if (listener != null) {
+      notifyingFuture.setListener(listener);
+    }
+    return notifyingFuture;
+  }
+
+  private static <T> FutureListener<RspList<T>> recorded(ClusterEvents.Rpc event, FutureListener<RspList<T>> listener) {
+    return (future) -> {
+      try {
+        event.completed(future.get().numReceived(), true);
+      } catch (Exception e) {
+        event.completed(0, false);
+      }
+      if (listener != null) {
+        listener.futureDone(future);
+      }
+    };
+  }
+
+  private static String mapName(MethodCall action) {
+    Object[] args = action.getArgs();
+    return args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "";
+  }
+
+  private OperationMetrics operation(MethodCall action) {
+    if (!metrics.enabled()) {
+      return null;
+    }
+    return metrics.operation(mapName(action), RpcServerObjDelegate.methodName(action.getId()));
+  }
+
+  /**
+   * @return the handler, recording the time the call took to complete when the metrics are enabled
+   */
+  private <T> Handler<AsyncResult<T>> timed(MethodCall action, Handler<AsyncResult<T>> handler) {
+    OperationMetrics operation = operation(action);
+    if (operation == null) {
+      return handler;
+    }
+    long start = System.nanoTime();
+    return (ar) -> {
+      operation.record(System.nanoTime() - start, ar.succeeded());
+      handler.handle(ar);
+    };
+  }
+
+  private <T> void complete(Context context, Handler<AsyncResult<T>> handler, AsyncResult<T> result) {
+    context.runOnContext((v) -> handler.handle(result));
   }
 
   private <T> T futureDone(RspList<T> rspList) {
     Collection<Rsp<T>> values = rspList.values();
 
-    values.parallelStream()
+    values.stream()
         .filter(Rsp::hasException)
         .forEach(rsp -> logWarn(() -> String.format("Execute method failed. Sender [%s], with exception [%s]", rsp.getSender(), rsp.getException())));
 
@@ -138,10 +418,60 @@ public class DefaultRpcExecutorService implements RpcExecutorService, LambdaLogg
         .reduce((a, b) -> a)
         .orElse(null);
 
+    return unwrap(value);
+  }
+
+  private <T> List<T> futureCollect(RspList<T> rspList) {
+    List<T> values = new ArrayList<>(rspList.size());
+    for (Rsp<T> rsp : rspList.values()) {
+      if (rsp.hasException()) {
+        logWarn(() -> String.format("Execute method failed. Sender [%s], with exception [%s]", rsp.getSender(), rsp.getException()));
+      } else if (rsp.wasReceived() && !rsp.wasUnreachable() && rsp.getValue() != null) {
+        values.add(unwrap(rsp.getValue()));
+      }
+    }
+    return values;
+  }
+
+  private Object batchDone(RspList<Object[]> rspList, int index) {
+    Object value = null;
+    for (Rsp<Object[]> rsp : rspList.values()) {
+      if (rsp.hasException()) {
+        logWarn(() -> String.format("Execute batch failed. Sender [%s], with exception [%s]", rsp.getSender(), rsp.getException()));
+      } else if (rsp.wasReceived() && !rsp.wasUnreachable() && rsp.getValue() != null) {
+        Object result = rsp.getValue()[index];
+        if (result instanceof Throwable) {
+          logWarn(() -> String.format("Execute method failed. Sender [%s], with exception [%s]", rsp.getSender(), result));
+        } else if (value == null) {
+          value = result;
+        }
+      }
+    }
+    return unwrap(value);
+  }
+
+  private <T> T unwrap(Object value) {
     if (value instanceof DataHolder) {
       return ((DataHolder<T>) value).unwrap();
     } else {
-      return value;
+      return (T) value;
+    }
+  }
+
+  private static class PendingCall {
+
+    private final MethodCall action;
+    private final Handler<AsyncResult<Object>> handler;
+    private final Context context;
+
+    private PendingCall(MethodCall action, Handler<AsyncResult<Object>> handler, Context context) {
+      this.action = action;
+      this.handler = handler;
+      this.context = context;
+    }
+
+    private void complete(AsyncResult<Object> result) {
+      context.runOnContext((v) -> handler.handle(result));
     }
   }
 
@@ -18,88 +18,574 @@ package io.vertx.spi.cluster.jgroups.impl.services;
 
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.spi.cluster.jgroups.impl.support.DataCodec;
 import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import io.vertx.spi.cluster.jgroups.impl.support.NearCache;
+import io.vertx.spi.cluster.jgroups.impl.support.TimingWheel;
+import org.jgroups.Address;
 
 import java.io.*;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
 
 public class DefaultRpcMapService implements RpcMapService, LambdaLogger {
 
   private final static Logger LOG = LoggerFactory.getLogger(DefaultRpcMapService.class);
 
+  /**
+   * Resolution in milliseconds of the expiration of the entries put with a TTL.
+   */
+  public static final String TTL_TICK_PROPERTY = "vertx.jgroups.map.ttl.tick";
+
+  public static final long TTL_TICK = Long.getLong(TTL_TICK_PROPERTY, 10L);
+
+  /**
+   * Max number of keys of a partitioned map whose readers an owner remembers, the readers of the least recently read
+   * key are told to drop their copy beyond it.
+   */
+  public static final String READERS_PROPERTY = "vertx.jgroups.map.near.cache.readers";
+
+  public static final int READERS = Integer.getInteger(READERS_PROPERTY, 100_000);
+
+  // Delay before an expired entry is handed out again, when the removal didn't come back, e.g. the member in charge
+  // of sending it left.
+  private static final long EXPIRATION_RETRY = 1000L;
+
   private final Map<String, Map> maps = new ConcurrentHashMap<>();
+  private final StateLog.Space log;
+  private final MapPartitioner partitioner;
+
+  // The entries put with a TTL, an entry loses its TTL with any later write.
+  private final Map<String, Map<Object, Expiration>> expirations = new ConcurrentHashMap<>();
+  private final TimingWheel<Expiration> wheel;
+  private final LongSupplier clock;
+
+  // The members with a copy of an entry of a partitioned map in their near cache, told when it changes.
+  private final Map<String, Readers> readers = new ConcurrentHashMap<>();
+  private final int readersCapacity;
+  private final Map<String, NearCache> nearCaches = new ConcurrentHashMap<>();
+  private volatile InvalidationHandler invalidationHandler = (name, key, addresses) -> {
+  };
+
+  @FunctionalInterface
+  public interface InvalidationHandler {
+    /**
+     * @param key the changed key, {@code null} when the whole map changed
+     */
+    void invalidate(String name, Object key, Collection<Address> readers);
+  }
+
+  public DefaultRpcMapService() {
+    this(new StateLog(0).space());
+  }
+
+  public DefaultRpcMapService(StateLog.Space log) {
+    this(log, MapPartitioner.replicated());
+  }
+
+  public DefaultRpcMapService(StateLog.Space log, MapPartitioner partitioner) {
+    this(log, partitioner, TTL_TICK, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+  }
+
+  DefaultRpcMapService(StateLog.Space log, long tick, LongSupplier clock) {
+    this(log, MapPartitioner.replicated(), tick, clock);
+  }
+
+  DefaultRpcMapService(StateLog.Space log, MapPartitioner partitioner, long tick, LongSupplier clock) {
+    this(log, partitioner, tick, clock, READERS);
+  }
+
+  DefaultRpcMapService(StateLog.Space log, MapPartitioner partitioner, long tick, LongSupplier clock, int readersCapacity) {
+    this.log = log;
+    this.partitioner = partitioner;
+    this.readersCapacity = readersCapacity;
+    this.clock = clock;
+    this.wheel = new TimingWheel<>(tick, clock.getAsLong());
+  }
 
   @Override
   public <K, V> Map<K, V> mapCreate(String name) {
-    logTrace(() -> String.format("method mapCreate name[%s]", name));
+    logTrace("method mapCreate name[%s]", name);
     return maps.computeIfAbsent(name, (key) -> new ConcurrentHashMap());
   }
 
   @Override
   public <K, V> void mapPut(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcMapService.put name = [" + name + "], k = [" + k + "], v = [" + v + "]");
-    this.<K, V>execute(name, (map) -> map.put(k.unwrap(), v.unwrap()));
+    logTrace("RpcMapService.put name = [%s], k = [%s], v = [%s]", name, k, v);
+    this.<K, V>update(name, k.unwrap(), (value) -> v.unwrap());
+    log.write(name, k.unwrap());
   }
 
   @Override
   public <K, V> DataHolder<V> mapPutIfAbsent(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcMapService.putIfAbsent name = [" + name + "], k = [" + k + "], v = [" + v + "]");
-    return this.<K, V, DataHolder<V>>executeAndReturn(name, (map) -> DataHolder.wrap(map.putIfAbsent(k.unwrap(), v.unwrap())));
+    logTrace("RpcMapService.putIfAbsent name = [%s], k = [%s], v = [%s]", name, k, v);
+    DataHolder<V> result = DataHolder.wrap(this.<K, V>update(name, k.unwrap(), (value) -> value != null ? value : v.unwrap()));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   @Override
   public <K, V> DataHolder<V> mapRemove(String name, DataHolder<K> k) {
-    logTrace(() -> "RpcMapService.remove name = [" + name + "], k = [" + k + "]");
-    return this.<K, V, DataHolder<V>>executeAndReturn(name, (map) -> DataHolder.wrap(map.remove(k.unwrap())));
+    logTrace("RpcMapService.remove name = [%s], k = [%s]", name, k);
+    DataHolder<V> result = DataHolder.wrap(this.<K, V>update(name, k.unwrap(), (value) -> null));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   @Override
   public <K, V> boolean mapRemoveIfPresent(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcMapService.removeIfPresent name = [" + name + "], k = [" + k + "], v = [" + v + "]");
-    return this.<K, V, Boolean>executeAndReturn(name, (map) -> map.remove(k.unwrap(), v.unwrap()));
+    logTrace("RpcMapService.removeIfPresent name = [%s], k = [%s], v = [%s]", name, k, v);
+    V expected = v.unwrap();
+    boolean result = expected.equals(this.<K, V>update(name, k.unwrap(), (value) -> expected.equals(value) ? null : value));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   @Override
   public <K, V> DataHolder<V> mapReplace(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcMapService.replace name = [" + name + "], k = [" + k + "], v = [" + v + "]");
-    return this.<K, V, DataHolder<V>>executeAndReturn(name, (map) -> DataHolder.wrap(map.replace(k.unwrap(), v.unwrap())));
+    logTrace("RpcMapService.replace name = [%s], k = [%s], v = [%s]", name, k, v);
+    DataHolder<V> result = DataHolder.wrap(this.<K, V>update(name, k.unwrap(), (value) -> value != null ? v.unwrap() : null));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   @Override
   public <K, V> boolean mapReplaceIfPresent(String name, DataHolder<K> k, DataHolder<V> oldValue, DataHolder<V> newValue) {
-    logTrace(() -> "RpcMapService.removeIfPresent name = [" + name + "], k = [" + k + "], oldValue = [" + oldValue + "], newValue = [" + newValue + "]");
-    return this.<K, V, Boolean>executeAndReturn(name, (map) -> map.replace(k.unwrap(), oldValue.unwrap(), newValue.unwrap()));
+    logTrace("RpcMapService.removeIfPresent name = [%s], k = [%s], oldValue = [%s], newValue = [%s]", name, k, oldValue, newValue);
+    V expected = oldValue.unwrap();
+    boolean result = expected.equals(this.<K, V>update(name, k.unwrap(), (value) -> expected.equals(value) ? newValue.unwrap() : value));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   @Override
   public <K, V> void mapClear(String name) {
-    logTrace(() -> "RpcMapService.clear name = [" + name + "]");
+    logTrace("RpcMapService.clear name = [%s]", name);
     this.<K, V>execute(name, Map::clear);
+    cancelExpirations(name);
+    invalidateAllReaders(name);
+    log.writeAll(name);
   }
 
   @Override
   public <K, V> void mapPutAll(String name, Map<DataHolder<K>, DataHolder<V>> m) {
-    logTrace(() -> "RpcMapService.mapPutAll name = [" + name + "]");
-    this.execute(name, (map) -> m.forEach((k, v) -> map.put(k.unwrap(), v.unwrap())));
+    logTrace("RpcMapService.mapPutAll name = [%s]", name);
+    m.forEach((k, v) -> this.<K, V>update(name, k.unwrap(), (value) -> v.unwrap()));
+    m.keySet().forEach((k) -> log.write(name, k.unwrap()));
+  }
+
+  @Override
+  public <K, V> void mapPutTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl) {
+    if (isTraceEnabled()) {
+      logTrace(() -> "RpcMapService.putTtl name = [" + name + "], k = [" + k + "], v = [" + v + "], ttl = [" + ttl + "]");
+    }
+    this.<K, V>execute(name, (map) -> map.compute(k.unwrap(), (key, value) -> {
+      scheduleExpiration(name, key, id, clock.getAsLong() + ttl);
+      return v.unwrap();
+    }));
+    invalidateReaders(name, k.unwrap());
+    log.write(name, k.unwrap());
+  }
+
+  @Override
+  public <K, V> DataHolder<V> mapPutIfAbsentTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl) {
+    if (isTraceEnabled()) {
+      logTrace(() -> "RpcMapService.putIfAbsentTtl name = [" + name + "], k = [" + k + "], v = [" + v + "], ttl = [" + ttl + "]");
+    }
+    Object[] previous = new Object[1];
+    this.<K, V>execute(name, (map) -> map.compute(k.unwrap(), (key, value) -> {
+      if (value != null) {
+        previous[0] = value;
+        return value;
+      }
+      scheduleExpiration(name, key, id, clock.getAsLong() + ttl);
+      return v.unwrap();
+    }));
+    if (previous[0] == null) {
+      invalidateReaders(name, k.unwrap());
+    }
+    log.write(name, k.unwrap());
+    return DataHolder.wrap((V) previous[0]);
+  }
+
+  @Override
+  public <K> void mapExpire(String name, Map<DataHolder<K>, Long> ids) {
+    if (isTraceEnabled()) {
+      logTrace(() -> "RpcMapService.expire name = [" + name + "], ids = [" + ids.size() + "]");
+    }
+    Map<Object, Expiration> mapExpirations = expirations.get(name);
+    if (mapExpirations == null) {
+      return;
+    }
+    Map<Object, Object> map = mapCreate(name);
+    ids.forEach((k, id) -> {
+      boolean[] expired = new boolean[1];
+      map.compute(k.unwrap(), (key, value) -> {
+        Expiration expiration = mapExpirations.get(key);
+        // The entry may have been written again since the expiration was sent.
+        if (expiration == null || expiration.id != id) {
+          return value;
+        }
+        mapExpirations.remove(key);
+        cancel(expiration);
+        expired[0] = value != null;
+        return null;
+      });
+      if (expired[0]) {
+        invalidateReaders(name, k.unwrap());
+        log.write(name, k.unwrap());
+      }
+    });
+  }
+
+  @Override
+  public void expire(ExpirationHandler handler) {
+    long now = clock.getAsLong();
+    List<Expiration> due = wheel.advance(now);
+    if (due.isEmpty()) {
+      return;
+    }
+    Map<String, Map<Object, Long>> ids = new HashMap<>();
+    for (Expiration expiration : due) {
+      synchronized (wheel) {
+        if (expiration.cancelled) {
+          continue;
+        }
+        wheel.schedule(expiration, now + EXPIRATION_RETRY);
+      }
+      ids.computeIfAbsent(expiration.name, (name) -> new HashMap<>()).put(expiration.key, expiration.id);
+    }
+    ids.forEach(handler::expired);
+  }
+
+  @Override
+  public <K, V> DataHolder<V> mapGet(String name, DataHolder<K> k, Address reader) {
+    logTrace("RpcMapService.get name = [%s], k = [%s], reader = [%s]", name, k, reader);
+    if (reader != null) {
+      // Registered before the read, a write coming in between is sent to the reader.
+      Object[] evicted = new Object[1];
+      readers.compute(name, (n, mapReaders) -> {
+        Readers registered = mapReaders != null ? mapReaders : new Readers(readersCapacity);
+        evicted[0] = registered.add(k.unwrap(), reader);
+        return registered;
+      });
+      if (evicted[0] != null) {
+        Map.Entry<Object, Set<Address>> entry = (Map.Entry<Object, Set<Address>>) evicted[0];
+        invalidationHandler.invalidate(name, entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+    }
+    return DataHolder.wrap(this.<K, V>mapCreate(name).get(k.unwrap()));
+  }
+
+  @Override
+  public <K> void mapInvalidate(String name, DataHolder<K> k) {
+    logTrace("RpcMapService.invalidate name = [%s], k = [%s]", name, k);
+    NearCache<K, ?> nearCache = nearCaches.get(name);
+    if (nearCache == null) {
+      return;
+    }
+    if (k.unwrap() == null) {
+      nearCache.clear();
+    } else {
+      nearCache.invalidate(k.unwrap());
+    }
+  }
+
+  /**
+   * @return the near cache of {@code name}, or {@code null} when it is replicated or near caches are disabled
+   */
+  public <K, V> NearCache<K, V> nearCache(String name) {
+    if (!partitioner.partitioned(name)) {
+      return null;
+    }
+    return nearCaches.computeIfAbsent(name, (n) -> NearCache.fromProperties());
+  }
+
+  public void invalidation(InvalidationHandler handler) {
+    this.invalidationHandler = handler;
+  }
+
+  /**
+   * Forgets the readers that left, with the keys no one else read, and empties the near caches, the owners of the
+   * cached entries may have changed.
+   */
+  public void membersChanged(Collection<Address> members) {
+    for (String name : readers.keySet()) {
+      readers.computeIfPresent(name, (n, mapReaders) -> mapReaders.retainAll(members) ? mapReaders : null);
+    }
+    nearCaches.values().forEach(NearCache::clear);
+  }
+
+  @Override
+  public void mapImport(String name, byte[] entries) throws IOException, ClassNotFoundException {
+    if (isTraceEnabled()) {
+      logTrace(() -> "RpcMapService.import name = [" + name + "], entries = [" + entries.length + "]");
+    }
+    Map<Object, Object> map = mapCreate(name);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(entries));
+    for (int i = in.readInt(); i > 0; i--) {
+      Object key = DataCodec.read(in);
+      if (!in.readBoolean()) {
+        continue;
+      }
+      Object value = DataCodec.read(in);
+      boolean ttl = in.readBoolean();
+      long id = ttl ? in.readLong() : 0;
+      long remaining = ttl ? in.readLong() : 0;
+      // An entry written here since is more recent than the copy being moved.
+      map.computeIfAbsent(key, (k) -> {
+        if (ttl) {
+          scheduleExpiration(name, k, id, clock.getAsLong() + remaining);
+        }
+        return value;
+      });
+    }
+  }
+
+  @Override
+  public int mapOwnedSize(String name) {
+    int size = 0;
+    for (Object key : mapCreate(name).keySet()) {
+      if (partitioner.primary(key)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public Object[] mapOwnedKeys(String name) {
+    return mapCreate(name).keySet().stream().filter(partitioner::primary).toArray();
+  }
+
+  public Set<String> mapNames() {
+    return maps.keySet();
+  }
+
+  /**
+   * @return the entries of {@code keys}, in the format {@link #mapImport} reads
+   */
+  public byte[] mapExport(String name, Collection<Object> keys) throws IOException {
+    Map<Object, Object> map = mapCreate(name);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(keys.size());
+    for (Object key : keys) {
+      writeDeltaRecord(name, key, map.get(key), out);
+    }
+    out.flush();
+    return output.toByteArray();
+  }
+
+  /**
+   * Removes the entries of {@code keys} from this member only.
+   */
+  public void mapDrop(String name, Collection<Object> keys) {
+    Map<Object, Object> map = mapCreate(name);
+    for (Object key : keys) {
+      map.remove(key);
+      cancelExpiration(name, key);
+      // The new owners don't know the readers of the entry.
+      invalidateReaders(name, key);
+    }
   }
 
   @Override
   public void writeTo(OutputStream output) throws IOException {
-    try (ObjectOutputStream oos = new ObjectOutputStream(output)) {
-      oos.writeObject(maps);
-      oos.flush();
+    // Partitioned maps aren't part of the state, every member only holds its own share of them.
+    StateChunks.Writer writer = StateChunks.writer(output);
+    for (Map.Entry<String, Map> entry : maps.entrySet()) {
+      if (partitioner.partitioned(entry.getKey())) {
+        continue;
+      }
+      writer.section(entry.getKey());
+      for (Map.Entry<Object, Object> mapEntry : ((Map<Object, Object>) entry.getValue()).entrySet()) {
+        writer.record((out) -> {
+          DataCodec.write(mapEntry.getKey(), out);
+          DataCodec.write(mapEntry.getValue(), out);
+        });
+      }
+      writer.endSection();
     }
+    writer.end();
+
+    // The time left rather than the deadline, the clocks of the members don't compare.
+    long now = clock.getAsLong();
+    StateChunks.Writer expirationWriter = StateChunks.writer(output);
+    for (Map.Entry<String, Map<Object, Expiration>> entry : expirations.entrySet()) {
+      if (partitioner.partitioned(entry.getKey())) {
+        continue;
+      }
+      expirationWriter.section(entry.getKey());
+      for (Expiration expiration : entry.getValue().values()) {
+        expirationWriter.record((out) -> {
+          DataCodec.write(expiration.key, out);
+          out.writeLong(expiration.id);
+          out.writeLong(Math.max(0, expiration.deadline - now));
+        });
+      }
+      expirationWriter.endSection();
+    }
+    expirationWriter.end();
   }
 
   @Override
   public void readFrom(InputStream input) throws IOException, ClassNotFoundException {
-    try (ObjectInputStream oos = new ObjectInputStream(input)) {
-      Map<String, Map> m = (Map<String, Map>) oos.readObject();
-      maps.putAll(m);
+    StateChunks.read(input, (name) -> {
+      Map<Object, Object> map = mapCreate(name);
+      return (in) -> map.put(DataCodec.read(in), DataCodec.read(in));
+    });
+    long now = clock.getAsLong();
+    StateChunks.read(input, (name) -> (in) -> scheduleExpiration(name, DataCodec.read(in), in.readLong(), now + in.readLong()));
+  }
+
+  @Override
+  public void writeDelta(OutputStream output, StateLog.Delta delta) throws IOException {
+    StateChunks.Writer writer = StateChunks.writer(output);
+    for (Map.Entry<String, Set<Object>> entry : delta.keys(log).entrySet()) {
+      if (partitioner.partitioned(entry.getKey())) {
+        continue;
+      }
+      Map<Object, Object> map = maps.getOrDefault(entry.getKey(), Collections.emptyMap());
+      writer.section(entry.getKey());
+      if (entry.getValue() == null) {
+        // A null key, which the maps don't allow, clears the map before its entries are sent again.
+        writer.record((out) -> DataCodec.write(null, out));
+        for (Map.Entry<Object, Object> mapEntry : map.entrySet()) {
+          writer.record((out) -> writeDeltaRecord(entry.getKey(), mapEntry.getKey(), mapEntry.getValue(), out));
+        }
+      } else {
+        for (Object key : entry.getValue()) {
+          Object value = map.get(key);
+          writer.record((out) -> writeDeltaRecord(entry.getKey(), key, value, out));
+        }
+      }
+      writer.endSection();
+    }
+    writer.end();
+  }
+
+  @Override
+  public void readDelta(InputStream input) throws IOException, ClassNotFoundException {
+    // Not parallel, the clearing of a map must come before its entries.
+    StateChunks.read(input, (name) -> {
+      Map<Object, Object> map = mapCreate(name);
+      return (in) -> {
+        Object key = DataCodec.read(in);
+        if (key == null) {
+          map.clear();
+          cancelExpirations(name);
+        } else if (in.readBoolean()) {
+          map.put(key, DataCodec.read(in));
+          if (in.readBoolean()) {
+            scheduleExpiration(name, key, in.readLong(), clock.getAsLong() + in.readLong());
+          } else {
+            cancelExpiration(name, key);
+          }
+        } else {
+          map.remove(key);
+          cancelExpiration(name, key);
+        }
+      };
+    }, 1);
+  }
+
+  private void writeDeltaRecord(String name, Object key, Object value, DataOutput out) throws IOException {
+    DataCodec.write(key, out);
+    out.writeBoolean(value != null);
+    if (value != null) {
+      DataCodec.write(value, out);
+      Expiration expiration = expirations.getOrDefault(name, Collections.emptyMap()).get(key);
+      out.writeBoolean(expiration != null);
+      if (expiration != null) {
+        out.writeLong(expiration.id);
+        out.writeLong(Math.max(0, expiration.deadline - clock.getAsLong()));
+      }
+    }
+  }
+
+  /**
+   * Applies a write to {@code key}, a write changing its value drops its TTL.
+   *
+   * @return the previous value
+   */
+  private <K, V> V update(String name, K key, UnaryOperator<V> function) {
+    Object[] previous = new Object[1];
+    boolean[] changed = new boolean[1];
+    this.<K, V>execute(name, (map) -> map.compute(key, (k, value) -> {
+      previous[0] = value;
+      V updated = function.apply(value);
+      if (updated != value) {
+        cancelExpiration(name, k);
+        changed[0] = true;
+      }
+      return updated;
+    }));
+    if (changed[0]) {
+      invalidateReaders(name, key);
+    }
+    return (V) previous[0];
+  }
+
+  private void invalidateReaders(String name, Object key) {
+    Readers mapReaders = readers.get(name);
+    if (mapReaders == null) {
+      return;
+    }
+    // A reader registers again with its next read.
+    Set<Address> addresses = mapReaders.remove(key);
+    if (addresses != null && !addresses.isEmpty()) {
+      invalidationHandler.invalidate(name, key, new ArrayList<>(addresses));
+    }
+  }
+
+  private void invalidateAllReaders(String name) {
+    Readers mapReaders = readers.remove(name);
+    if (mapReaders != null) {
+      Set<Address> addresses = mapReaders.all();
+      if (!addresses.isEmpty()) {
+        invalidationHandler.invalidate(name, null, new ArrayList<>(addresses));
+      }
+    }
+  }
+
+  private void scheduleExpiration(String name, Object key, long id, long deadline) {
+    Expiration expiration = new Expiration(name, key, id, deadline);
+    Expiration previous = expirations.computeIfAbsent(name, (n) -> new ConcurrentHashMap<>()).put(key, expiration);
+    if (previous != null) {
+      cancel(previous);
+    }
+    wheel.schedule(expiration, deadline);
+  }
+
+  private void cancelExpiration(String name, Object key) {
+    Map<Object, Expiration> mapExpirations = expirations.get(name);
+    if (mapExpirations != null) {
+      Expiration expiration = mapExpirations.remove(key);
+      if (expiration != null) {
+        cancel(expiration);
+      }
+    }
+  }
+
+  private void cancelExpirations(String name) {
+    Map<Object, Expiration> mapExpirations = expirations.remove(name);
+    if (mapExpirations != null) {
+      mapExpirations.values().forEach(this::cancel);
+    }
+  }
+
+  private void cancel(Expiration expiration) {
+    // Under the lock of the wheel, so an expiration being handed out isn't scheduled again.
+    synchronized (wheel) {
+      expiration.cancelled = true;
+      wheel.cancel(expiration);
     }
   }
 
@@ -118,4 +604,66 @@ public class DefaultRpcMapService implements RpcMapService, LambdaLogger {
   public Logger log() {
     return LOG;
   }
+
+  private static class Expiration extends TimingWheel.Timeout {
+
+    private final String name;
+    private final Object key;
+    private final long id;
+    private final long deadline;
+    private boolean cancelled;
+
+    private Expiration(String name, Object key, long id, long deadline) {
+      this.name = name;
+      this.key = key;
+      this.id = id;
+      this.deadline = deadline;
+    }
+  }
+
+  // The readers of the keys of a map, least recently read first.
+  private static class Readers {
+
+    private final int capacity;
+    private final LinkedHashMap<Object, Set<Address>> keys = new LinkedHashMap<>(16, 0.75f, true);
+
+    private Readers(int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * @return the readers of the key forgotten to make room, if any
+     */
+    private synchronized Map.Entry<Object, Set<Address>> add(Object key, Address reader) {
+      keys.computeIfAbsent(key, (k) -> new HashSet<>()).add(reader);
+      if (keys.size() <= capacity) {
+        return null;
+      }
+      Iterator<Map.Entry<Object, Set<Address>>> eldest = keys.entrySet().iterator();
+      Map.Entry<Object, Set<Address>> evicted = eldest.next();
+      eldest.remove();
+      return evicted;
+    }
+
+    private synchronized Set<Address> remove(Object key) {
+      return keys.remove(key);
+    }
+
+    private synchronized Set<Address> all() {
+      Set<Address> addresses = new HashSet<>();
+      keys.values().forEach(addresses::addAll);
+      return addresses;
+    }
+
+    /**
+     * @return whether readers remain
+     */
+    private synchronized boolean retainAll(Collection<Address> members) {
+      keys.values().removeIf((addresses) -> {
+        addresses.retainAll(members);
+        return addresses.isEmpty();
+      });
+      return !keys.isEmpty();
+    }
+  }
 }
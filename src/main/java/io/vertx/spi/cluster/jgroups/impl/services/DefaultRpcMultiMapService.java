@@ -18,17 +18,22 @@ package io.vertx.spi.cluster.jgroups.impl.services;
 
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.spi.cluster.jgroups.impl.domain.ChoosableArrayList;
 import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
 import io.vertx.spi.cluster.jgroups.impl.domain.MultiMapImpl;
+import io.vertx.spi.cluster.jgroups.impl.support.DataCodec;
 import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
 
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -38,60 +43,144 @@ public class DefaultRpcMultiMapService implements RpcMultiMapService, LambdaLogg
   private final static Logger LOG = LoggerFactory.getLogger(DefaultRpcMultiMapService.class);
 
   private final Map<String, MultiMap> maps = new ConcurrentHashMap<>();
+  private final StateLog.Space log;
+
+  public DefaultRpcMultiMapService() {
+    this(new StateLog(0).space());
+  }
+
+  public DefaultRpcMultiMapService(StateLog.Space log) {
+    this.log = log;
+  }
 
   public <K, V> MultiMap<K, V> multiMapCreate(String name) {
-    logDebug(() -> String.format("method multiMapCreate key[%s]", name));
+    logDebug("method multiMapCreate key[%s]", name);
     return this.<K, V, MultiMap<K, V>>executeAndReturn(name, Function.identity());
   }
 
   public <K, V> void multiMapAdd(String name, DataHolder<K> k, DataHolder<V> v) {
-    logDebug(() -> String.format("method multiMapAdd name[%s] key[%s] value[%s]", name, k, v));
+    logDebug("method multiMapAdd name[%s] key[%s] value[%s]", name, k, v);
     this.<K, V, Void>executeAndReturn(name, (map) -> {
       map.add(k.unwrap(), v.unwrap());
       return null;
     });
+    log.write(name, k.unwrap());
   }
 
   public <K, V> boolean multiMapRemove(String name, DataHolder<K> k, DataHolder<V> v) {
-    logDebug(() -> String.format("method multiMapRemove name[%s] key[%s] value[%s]", name, k, v));
-    return this.<K, V, Boolean>executeAndReturn(name, (map) -> map.remove(k.unwrap(), v.unwrap()));
+    logDebug("method multiMapRemove name[%s] key[%s] value[%s]", name, k, v);
+    boolean result = this.<K, V, Boolean>executeAndReturn(name, (map) -> map.remove(k.unwrap(), v.unwrap()));
+    log.write(name, k.unwrap());
+    return result;
   }
 
   public <K, V> void multiMapRemoveAll(String name, DataHolder<V> v) {
-    logDebug(() -> String.format("method multiMapRemoveAll name[%s] value[%s]", name, v));
-    this.<K, V, Void>executeAndReturn(name, (map) -> {
-      map.removeAll(v.unwrap());
-      return null;
-    });
+    logDebug("method multiMapRemoveAll name[%s] value[%s]", name, v);
+    Collection<K> keys = this.<K, V, Collection<K>>executeAndReturn(name, (map) -> map.removeAll(v.unwrap()));
+    keys.forEach((k) -> log.write(name, k));
   }
 
   @Override
   public <K, V> void multiMapRemoveAllMatching(String name, DataHolder<Predicate<V>> p) {
-    logDebug(() -> String.format("method multiMapRemoveAllMatching name[%s]", name));
-    this.<K, V, Void>executeAndReturn(name, (map) -> {
-      map.removeAllMatching(p.unwrap());
-      return null;
-    });
+    logDebug("method multiMapRemoveAllMatching name[%s]", name);
+    Collection<K> keys = this.<K, V, Collection<K>>executeAndReturn(name, (map) -> map.removeAllMatching(p.unwrap()));
+    keys.forEach((k) -> log.write(name, k));
   }
 
   @Override
   public void writeTo(OutputStream output) throws IOException {
-    try (ObjectOutputStream oos = new ObjectOutputStream(output)) {
-      oos.writeObject(maps);
+    StateChunks.Writer writer = StateChunks.writer(output);
+    for (Map.Entry<String, MultiMap> entry : maps.entrySet()) {
+      writer.section(entry.getKey());
+      for (Map.Entry<Object, ChoosableArrayList<Object>> mapEntry : ((MultiMap<Object, Object>) entry.getValue()).entries()) {
+        writer.record((out) -> {
+          DataCodec.write(mapEntry.getKey(), out);
+          for (Object value : mapEntry.getValue()) {
+            out.writeBoolean(true);
+            DataCodec.write(value, out);
+          }
+          out.writeBoolean(false);
+        });
+      }
+      writer.endSection();
     }
+    writer.end();
   }
 
   @Override
   public void readFrom(InputStream input) throws IOException, ClassNotFoundException {
-    try (ObjectInputStream oos = new ObjectInputStream(input)) {
-      Map<String, MultiMap> m = (Map<String, MultiMap>) oos.readObject();
-      maps.putAll(m);
+    StateChunks.read(input, (name) -> {
+      MultiMap<Object, Object> map = multiMapCreate(name);
+      return (in) -> {
+        Object key = DataCodec.read(in);
+        while (in.readBoolean()) {
+          map.add(key, DataCodec.read(in));
+        }
+      };
+    });
+  }
+
+  @Override
+  public void writeDelta(OutputStream output, StateLog.Delta delta) throws IOException {
+    StateChunks.Writer writer = StateChunks.writer(output);
+    for (Map.Entry<String, Set<Object>> entry : delta.keys(log).entrySet()) {
+      MultiMap<Object, Object> map = maps.getOrDefault(entry.getKey(), new MultiMapImpl<>(entry.getKey()));
+      writer.section(entry.getKey());
+      if (entry.getValue() == null) {
+        // A null key clears the multimap before its entries are sent again.
+        writer.record((out) -> DataCodec.write(null, out));
+        for (Map.Entry<Object, ChoosableArrayList<Object>> mapEntry : map.entries()) {
+          writer.record((out) -> writeDeltaRecord(mapEntry.getKey(), mapEntry.getValue(), out));
+        }
+      } else {
+        for (Object key : entry.getValue()) {
+          writer.record((out) -> writeDeltaRecord(key, map.get(key), out));
+        }
+      }
+      writer.endSection();
+    }
+    writer.end();
+  }
+
+  @Override
+  public void readDelta(InputStream input) throws IOException, ClassNotFoundException {
+    // Not parallel, the clearing of a multimap must come before its entries.
+    StateChunks.read(input, (name) -> {
+      MultiMap<Object, Object> map = multiMapCreate(name);
+      return (in) -> {
+        Object key = DataCodec.read(in);
+        if (key == null) {
+          List<Map.Entry<Object, ChoosableArrayList<Object>>> entries = new ArrayList<>();
+          map.entries().forEach(entries::add);
+          entries.forEach((entry) -> removeValues(map, entry.getKey()));
+          return;
+        }
+        removeValues(map, key);
+        while (in.readBoolean()) {
+          map.add(key, DataCodec.read(in));
+        }
+      };
+    }, 1);
+  }
+
+  private static void writeDeltaRecord(Object key, Iterable<Object> values, DataOutput out) throws IOException {
+    DataCodec.write(key, out);
+    for (Object value : values) {
+      out.writeBoolean(true);
+      DataCodec.write(value, out);
+    }
+    out.writeBoolean(false);
+  }
+
+  private static void removeValues(MultiMap<Object, Object> map, Object key) {
+    for (Object value : map.get(key)) {
+      map.remove(key, value);
     }
   }
 
   private <K, V, R> R executeAndReturn(String name, Function<MultiMap<K, V>, R> function) {
     MultiMap<K, V> map = maps.computeIfAbsent(name, (key) -> {
-      logDebug(() -> String.format("create multiMap with name[%s]", key));
+      logDebug("create multiMap with name[%s]", key);
       return new MultiMapImpl<K, V>(key);
     });
     return function.apply(map);
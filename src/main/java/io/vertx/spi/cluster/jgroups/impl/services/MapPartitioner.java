@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.spi.cluster.jgroups.impl.support.ConsistentHash;
+import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import org.jgroups.Address;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which maps are partitioned and which members own each of their keys.
+ * <p>
+ * The entries of a partitioned map are only stored by their owners: a primary owner and a number of backups, picked
+ * by a {@link ConsistentHash} of the cluster members. When the members change, the first surviving owner of each key
+ * copies it to its new owners. A member no longer owning a key copies it to all of its owners as well, and only drops
+ * it once they acknowledged the copy. A map whose copies weren't all acknowledged is placed again from where it was.
+ */
+public class MapPartitioner implements LambdaLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MapPartitioner.class);
+
+  /**
+   * Comma separated names of the async maps to partition, a name ending with {@code *} matches all maps starting with
+   * the rest of it. The internal maps of Vert.x are always replicated.
+   */
+  public static final String PARTITIONED_PROPERTY = "vertx.jgroups.map.partitioned";
+
+  /**
+   * Number of copies of each entry of a partitioned map on top of the primary one.
+   */
+  public static final String BACKUPS_PROPERTY = "vertx.jgroups.map.backups";
+
+  private static final String INTERNAL_PREFIX = "__vertx.";
+  private static final int MOVE_CHUNK = 1000;
+
+  private final Address local;
+  private final List<String> patterns;
+  private final int copies;
+  private final Map<String, Boolean> partitioned = new ConcurrentHashMap<>();
+
+  private volatile ConsistentHash<Address> ring = new ConsistentHash<>(Collections.emptyList());
+  // The ring the local entries were last placed with.
+  private ConsistentHash<Address> balanced = ring;
+  // The ring of the maps whose last placement wasn't acknowledged by every target, the next one starts from there.
+  private final Map<String, ConsistentHash<Address>> unbalanced = new HashMap<>();
+
+  @FunctionalInterface
+  public interface Mover {
+    /**
+     * Copies the entries of {@code keys} to {@code target}.
+     */
+    void move(String name, Collection<Object> keys, Address target) throws Exception;
+  }
+
+  public MapPartitioner(Address local, List<String> patterns, int backups) {
+    this.local = local;
+    this.patterns = patterns;
+    this.copies = backups + 1;
+  }
+
+  public static MapPartitioner fromProperties(Address local) {
+    List<String> patterns = new ArrayList<>();
+    for (String pattern : System.getProperty(PARTITIONED_PROPERTY, "").split(",")) {
+      if (!pattern.trim().isEmpty()) {
+        patterns.add(pattern.trim());
+      }
+    }
+    return new MapPartitioner(local, patterns, Integer.getInteger(BACKUPS_PROPERTY, 1));
+  }
+
+  /**
+   * @return a partitioner leaving all maps replicated
+   */
+  public static MapPartitioner replicated() {
+    return new MapPartitioner(null, Collections.emptyList(), 0);
+  }
+
+  /**
+   * @return the address of this member
+   */
+  public Address address() {
+    return local;
+  }
+
+  public boolean partitioned(String name) {
+    return !patterns.isEmpty() && partitioned.computeIfAbsent(name, this::matches);
+  }
+
+  private boolean matches(String name) {
+    if (name.startsWith(INTERNAL_PREFIX)) {
+      return false;
+    }
+    for (String pattern : patterns) {
+      if (pattern.endsWith("*") ? name.startsWith(pattern.substring(0, pattern.length() - 1)) : name.equals(pattern)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the owners of {@code key}, the primary one first
+   */
+  public List<Address> owners(Object key) {
+    return ring.owners(ConsistentHash.hash(key), copies);
+  }
+
+  public boolean owns(Object key) {
+    return owners(key).contains(local);
+  }
+
+  public boolean primary(Object key) {
+    List<Address> owners = owners(key);
+    return !owners.isEmpty() && owners.get(0).equals(local);
+  }
+
+  public void membersChanged(List<Address> members) {
+    logDebug(() -> "Partitioning maps over " + members);
+    ring = new ConsistentHash<>(members);
+  }
+
+  /**
+   * Places the entries of the partitioned maps of {@code mapService} according to the current members.
+   *
+   * @return whether every copy was acknowledged, otherwise the next call places the maps concerned again
+   */
+  public synchronized boolean rebalance(DefaultRpcMapService mapService, Mover mover) {
+    ConsistentHash<Address> current = ring;
+    if (balanced == current && unbalanced.isEmpty()) {
+      return true;
+    }
+    Collection<String> names = mapService.mapNames();
+    unbalanced.keySet().retainAll(names);
+    for (String name : names) {
+      ConsistentHash<Address> previous = unbalanced.getOrDefault(name, balanced);
+      if (!partitioned(name) || (previous == current && !unbalanced.containsKey(name))) {
+        continue;
+      }
+      if (rebalance(name, mapService, mover, previous, current)) {
+        unbalanced.remove(name);
+      } else {
+        unbalanced.put(name, previous);
+      }
+    }
+    balanced = current;
+    return unbalanced.isEmpty();
+  }
+
+  /**
+   * @return whether every copy was acknowledged
+   */
+  private boolean rebalance(String name, DefaultRpcMapService mapService, Mover mover,
+                            ConsistentHash<Address> previous, ConsistentHash<Address> current) {
+    Map<Address, List<Object>> moves = new HashMap<>();
+    Set<Object> dropped = new HashSet<>();
+    for (Object key : mapService.mapCreate(name).keySet()) {
+      long hash = ConsistentHash.hash(key);
+      List<Address> owners = current.owners(hash, copies);
+      List<Address> previousOwners = previous.owners(hash, copies);
+      Address source = null;
+      for (Address owner : previousOwners) {
+        if (current.members().contains(owner)) {
+          source = owner;
+          break;
+        }
+      }
+      boolean drop = !owners.contains(local);
+      if (drop) {
+        // Whatever the other members copied, the owners hold it once they acknowledged our own copy.
+        for (Address owner : owners) {
+          moves.computeIfAbsent(owner, (a) -> new ArrayList<>()).add(key);
+        }
+        dropped.add(key);
+      } else if (local.equals(source) || (source == null && !previousOwners.contains(local))) {
+        // A copy held outside of the owners, e.g. written while members disagreed on the view, is moved when no
+        // owner survived.
+        for (Address owner : owners) {
+          if (!owner.equals(local) && !previousOwners.contains(owner)) {
+            moves.computeIfAbsent(owner, (a) -> new ArrayList<>()).add(key);
+          }
+        }
+      }
+    }
+    boolean[] complete = {true};
+    moves.forEach((target, keys) -> {
+      for (int from = 0; from < keys.size(); from += MOVE_CHUNK) {
+        List<Object> chunk = keys.subList(from, Math.min(from + MOVE_CHUNK, keys.size()));
+        try {
+          mover.move(name, chunk, target);
+        } catch (Exception e) {
+          // Not acknowledged, so kept here rather than lost: the next rebalance gives them another chance.
+          dropped.removeAll(chunk);
+          complete[0] = false;
+          logWarn(() -> String.format("Unable to move %d entries of [%s] to [%s]: %s", chunk.size(), name, target, e.getMessage()));
+        }
+      }
+    });
+    mapService.mapDrop(name, dropped);
+    logDebug(() -> String.format("Rebalanced [%s]: %d entries moved, %d dropped", name, moves.values().stream().mapToInt(List::size).sum(), dropped.size()));
+    return complete[0];
+  }
+
+  @Override
+  public Logger log() {
+    return LOG;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import org.jgroups.blocks.MethodCall;
+import org.jgroups.util.Streamable;
+import org.jgroups.util.Util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Several id based {@link MethodCall}s shipped as a single RPC. Each call is applied in order on the receiving
+ * member and gets its own slot in the result array.
+ */
+public class MethodCallBatch implements Streamable {
+
+  private short[] ids;
+  private Object[][] args;
+
+  public MethodCallBatch() {
+  }
+
+  public MethodCallBatch(List<MethodCall> calls) {
+    int size = calls.size();
+    this.ids = new short[size];
+    this.args = new Object[size][];
+    for (int i = 0; i < size; i++) {
+      MethodCall call = calls.get(i);
+      ids[i] = call.getId();
+      args[i] = call.getArgs() != null ? call.getArgs() : new Object[0];
+    }
+  }
+
+  MethodCallBatch(short[] ids, Object[][] args) {
+    this.ids = ids;
+    this.args = args;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public short id(int index) {
+    return ids[index];
+  }
+
+  public Object[] args(int index) {
+    return args[index];
+  }
+
+  @Override
+  public void writeTo(DataOutput out) throws Exception {
+    out.writeInt(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      out.writeShort(ids[i]);
+      out.writeByte(args[i].length);
+      for (Object arg : args[i]) {
+        Util.writeObject(arg, out);
+      }
+    }
+  }
+
+  @Override
+  public void readFrom(DataInput in) throws Exception {
+    int size = in.readInt();
+    ids = new short[size];
+    args = new Object[size][];
+    for (int i = 0; i < size; i++) {
+      ids[i] = in.readShort();
+      Object[] callArgs = new Object[in.readByte()];
+      for (int j = 0; j < callArgs.length; j++) {
+        callArgs[j] = Util.readObject(in);
+      }
+      args[i] = callArgs;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MethodCallBatch{ids=" + Arrays.toString(ids) + "}";
+  }
+}
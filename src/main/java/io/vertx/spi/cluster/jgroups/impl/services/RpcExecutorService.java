@@ -18,19 +18,56 @@ package io.vertx.spi.cluster.jgroups.impl.services;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import org.jgroups.Address;
 import org.jgroups.blocks.MethodCall;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public interface RpcExecutorService {
 
   <T> void runAsync(Supplier<T> supplier, Handler<AsyncResult<T>> handler);
 
+  /**
+   * Runs a non blocking read of the local replica and completes the handler on the caller context.
+   */
+  <T> void runLocal(Supplier<T> supplier, Handler<AsyncResult<T>> handler);
+
+  /**
+   * Same as {@link #runLocal(Supplier, Handler)} with {@code read} applied to {@code arg}, a read held in a field
+   * captures nothing on each call.
+   */
+  <A, T> void runLocal(Function<A, T> read, A arg, Handler<AsyncResult<T>> handler);
+
   <T> T remoteExecute(MethodCall action, long timeout);
 
   <T> void remoteExecute(MethodCall action, Handler<AsyncResult<T>> handler);
 
   <T> void remoteExecute(MethodCall action, long timeout, Handler<AsyncResult<T>> handler);
 
+  /**
+   * Runs {@code action} on all the members, the handler is completed once {@code ack} is reached.
+   */
+  <T> void remoteExecute(MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler);
+
+  /**
+   * Runs {@code action} on the {@code destinations} only, the first non null result completes the handler.
+   */
+  <T> void remoteExecute(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler);
+
+  <T> void remoteExecute(Collection<Address> destinations, MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler);
+
+  /**
+   * Runs a read only {@code action} on the {@code destinations}, the first result completes the handler.
+   */
+  <T> void remoteRead(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler);
+
+  /**
+   * Runs {@code action} on all the members and completes the handler with the non null results.
+   */
+  <T> void remoteCollect(MethodCall action, Handler<AsyncResult<List<T>>> handler);
+
   void stop();
 }
@@ -17,6 +17,7 @@
 package io.vertx.spi.cluster.jgroups.impl.services;
 
 import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.Address;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,7 +44,62 @@ public interface RpcMapService {
 
   <K, V> void mapPutAll(String name, Map<DataHolder<K>, DataHolder<V>> m);
 
+  /**
+   * Puts an entry removed {@code ttl} milliseconds later, {@code id} identifies this write in the expiration.
+   */
+  <K, V> void mapPutTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl);
+
+  <K, V> DataHolder<V> mapPutIfAbsentTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl);
+
+  /**
+   * Removes the entries of {@code ids} whose last write is still the TTL write of the given id.
+   */
+  <K> void mapExpire(String name, Map<DataHolder<K>, Long> ids);
+
+  /**
+   * Hands the entries whose TTL has elapsed on this member to {@code handler}. They are not removed, the removal is
+   * up to a {@link #mapExpire} applied on every member.
+   */
+  void expire(ExpirationHandler handler);
+
+  /**
+   * @param reader the member to tell when the entry changes, it keeps a copy in its near cache
+   */
+  <K, V> DataHolder<V> mapGet(String name, DataHolder<K> k, Address reader);
+
+  /**
+   * Drops the entry of {@code k} from the near cache, the whole near cache when {@code k} holds {@code null}.
+   */
+  <K> void mapInvalidate(String name, DataHolder<K> k);
+
+  /**
+   * Adds the entries of {@code entries}, as exported by another member, unless this member already has them.
+   */
+  void mapImport(String name, byte[] entries) throws IOException, ClassNotFoundException;
+
+  /**
+   * @return the number of entries this member is the primary owner of
+   */
+  int mapOwnedSize(String name);
+
+  /**
+   * @return the keys this member is the primary owner of
+   */
+  Object[] mapOwnedKeys(String name);
+
   void writeTo(OutputStream output) throws IOException;
 
   void readFrom(InputStream input) throws IOException, ClassNotFoundException;
+
+  void writeDelta(OutputStream output, StateLog.Delta delta) throws IOException;
+
+  void readDelta(InputStream input) throws IOException, ClassNotFoundException;
+
+  @FunctionalInterface
+  interface ExpirationHandler {
+    /**
+     * @param ids the expired keys of the map, with the id of their TTL write
+     */
+    void expired(String name, Map<Object, Long> ids);
+  }
 }
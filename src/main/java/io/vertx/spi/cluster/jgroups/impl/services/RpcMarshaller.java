@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.ClusterEvents;
+import io.vertx.spi.cluster.jgroups.impl.support.DataCodec;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.Address;
+import org.jgroups.blocks.MethodCall;
+import org.jgroups.blocks.RpcDispatcher;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.ByteArrayDataInputStream;
+import org.jgroups.util.ByteArrayDataOutputStream;
+import org.jgroups.util.Util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Marshals the requests and responses of the {@link RpcServerObjDelegate} methods.
+ * <p>
+ * A request is written as its method id followed by its arguments, the keys and values wrapped in {@link DataHolder}s
+ * are written with the {@link DataCodec}. Neither the {@link MethodCall} nor its arguments go through Java
+ * serialization, so an RPC is a fixed binary layout with no class descriptor.
+ */
+public class RpcMarshaller implements RpcDispatcher.Marshaller {
+
+  private static final byte VALUE = 0;
+  private static final byte DATA_HOLDER = 1;
+  private static final byte METHOD_CALL = 2;
+  private static final byte METHOD_CALL_BATCH = 3;
+  private static final byte ARRAY = 4;
+  private static final byte MAP = 5;
+  private static final byte ADDRESS = 6;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  @Override
+  public Buffer objectToBuffer(Object obj) throws Exception {
+    ByteArrayDataOutputStream out = new ByteArrayDataOutputStream(INITIAL_CAPACITY);
+    write(obj, out);
+    Buffer buffer = out.getBuffer();
+    if (obj instanceof MethodCall) {
+      ClusterEvents.EVENTS.marshalled(buffer.getLength());
+    }
+    return buffer;
+  }
+
+  @Override
+  public Object objectFromBuffer(byte[] buf, int offset, int length) throws Exception {
+    if (buf == null || length == 0) {
+      return null;
+    }
+    return read(new ByteArrayDataInputStream(buf, offset, length));
+  }
+
+  static void write(Object obj, DataOutput out) throws IOException {
+    if (obj instanceof DataHolder) {
+      out.writeByte(DATA_HOLDER);
+      DataCodec.write(((DataHolder) obj).unwrap(), out);
+    } else if (obj instanceof MethodCall) {
+      MethodCall call = (MethodCall) obj;
+      out.writeByte(METHOD_CALL);
+      out.writeShort(call.getId());
+      writeArgs(call.getArgs(), out);
+    } else if (obj instanceof MethodCallBatch) {
+      MethodCallBatch batch = (MethodCallBatch) obj;
+      out.writeByte(METHOD_CALL_BATCH);
+      out.writeInt(batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        out.writeShort(batch.id(i));
+        writeArgs(batch.args(i), out);
+      }
+    } else if (obj instanceof Object[]) {
+      Object[] array = (Object[]) obj;
+      out.writeByte(ARRAY);
+      out.writeInt(array.length);
+      for (Object element : array) {
+        write(element, out);
+      }
+    } else if (obj instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) obj;
+      out.writeByte(MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(entry.getKey(), out);
+        write(entry.getValue(), out);
+      }
+    } else if (obj instanceof Address) {
+      out.writeByte(ADDRESS);
+      try {
+        Util.writeAddress((Address) obj, out);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    } else {
+      out.writeByte(VALUE);
+      DataCodec.write(obj, out);
+    }
+  }
+
+  static Object read(DataInput in) throws IOException, ClassNotFoundException {
+    byte type = in.readByte();
+    switch (type) {
+      case VALUE:
+        return DataCodec.read(in);
+      case DATA_HOLDER:
+        return DataHolder.wrap(DataCodec.read(in));
+      case METHOD_CALL:
+        short id = in.readShort();
+        return new MethodCall(id, readArgs(in));
+      case METHOD_CALL_BATCH:
+        int size = in.readInt();
+        short[] ids = new short[size];
+        Object[][] args = new Object[size][];
+        for (int i = 0; i < size; i++) {
+          ids[i] = in.readShort();
+          args[i] = readArgs(in);
+        }
+        return new MethodCallBatch(ids, args);
+      case ARRAY:
+        Object[] array = new Object[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = read(in);
+        }
+        return array;
+      case MAP:
+        int entries = in.readInt();
+        Map<Object, Object> map = new HashMap<>(entries * 4 / 3 + 1);
+        for (int i = 0; i < entries; i++) {
+          map.put(read(in), read(in));
+        }
+        return map;
+      case ADDRESS:
+        try {
+          return Util.readAddress(in);
+        } catch (IOException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new IOException("Unknown RPC type tag " + type);
+    }
+  }
+
+  private static void writeArgs(Object[] args, DataOutput out) throws IOException {
+    int length = args != null ? args.length : 0;
+    out.writeByte(length);
+    for (int i = 0; i < length; i++) {
+      write(args[i], out);
+    }
+  }
+
+  private static Object[] readArgs(DataInput in) throws IOException, ClassNotFoundException {
+    Object[] args = new Object[in.readByte()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = read(in);
+    }
+    return args;
+  }
+}
@@ -39,4 +39,8 @@ public interface RpcMultiMapService {
   void writeTo(OutputStream output) throws IOException;
 
   void readFrom(InputStream input) throws IOException, ClassNotFoundException;
+
+  void writeDelta(OutputStream output, StateLog.Delta delta) throws IOException;
+
+  void readDelta(InputStream input) throws IOException, ClassNotFoundException;
 }
@@ -21,15 +21,26 @@ import io.vertx.core.logging.LoggerFactory;
 import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
 import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
 import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import org.jgroups.Address;
 import org.jgroups.blocks.MethodCall;
 import org.jgroups.blocks.MethodLookup;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService, LambdaLogger {
@@ -38,6 +49,11 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
 
   private final RpcMapService mapService;
   private final RpcMultiMapService multiMapService;
+  private final StateLog stateLog;
+
+  private static final short BATCH = 1;
+  private static final short STATE_DELTA = 2;
+  private static final short STATE_POSITION = 3;
 
   private static final short MULTIMAP_ADD = 11;
   private static final short MULTIMAP_REMOVE = 12;
@@ -52,6 +68,18 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
   private static final short MAP_REPLACEIFPRESENT = 26;
   private static final short MAP_CLEAR = 27;
   private static final short MAP_PUTALL = 28;
+  private static final short MAP_PUT_TTL = 29;
+  private static final short MAP_PUTIFABSENT_TTL = 30;
+  private static final short MAP_EXPIRE = 31;
+  private static final short MAP_IMPORT = 32;
+  private static final short MAP_GET = 33;
+  private static final short MAP_SIZE = 34;
+  private static final short MAP_KEYS = 35;
+  private static final short MAP_INVALIDATE = 36;
+
+  public static final Function<List<MethodCall>, MethodCall> CALL_BATCH = (calls) -> new MethodCall(BATCH, new MethodCallBatch(calls));
+  public static final BiFunction<Long, Long, MethodCall> CALL_STATE_DELTA = (epoch, position) -> new MethodCall(STATE_DELTA, epoch, position);
+  public static final Function<Long, MethodCall> CALL_STATE_POSITION = (epoch) -> new MethodCall(STATE_POSITION, epoch);
 
   public static final MethodCallInterface.ThreeParameters CALL_MULTIMAP_ADD = (name, p1, p2) -> new MethodCall(MULTIMAP_ADD, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
   public static final MethodCallInterface.ThreeParameters CALL_MULTIMAP_REMOVE = (name, p1, p2) -> new MethodCall(MULTIMAP_REMOVE, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
@@ -59,21 +87,41 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
   public static final MethodCallInterface.TwoParameters CALL_MULTIMAP_REMOVE_ALL_MATCHING = (name, p1) -> new MethodCall(MULTIMAP_REMOVE_ALL_MATCHING, name, DataHolder.wrap(p1));
 
   public static final MethodCallInterface.ThreeParameters CALL_MAP_PUT = (name, p1, p2) -> new MethodCall(MAP_PUT, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
-  public static final MethodCallInterface.TwoParameters CALL_MAP_PUTALL = (name, p1) -> new MethodCall(MAP_PUTIFABSENT, name, DataHolder.wrap(p1));
+  public static final MethodCallInterface.TwoParameters CALL_MAP_PUTALL = (name, p1) -> new MethodCall(MAP_PUTALL, name, wrapAll((Map<?, ?>) p1));
   public static final MethodCallInterface.ThreeParameters CALL_MAP_PUTIFABSENT = (name, p1, p2) -> new MethodCall(MAP_PUTIFABSENT, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
   public static final MethodCallInterface.TwoParameters CALL_MAP_REMOVE = (name, p1) -> new MethodCall(MAP_REMOVE, name, DataHolder.wrap(p1));
   public static final MethodCallInterface.ThreeParameters CALL_MAP_REMOVEIFPRESENT = (name, p1, p2) -> new MethodCall(MAP_REMOVEIFPRESENT, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
   public static final MethodCallInterface.ThreeParameters CALL_MAP_REPLACE = (name, p1, p2) -> new MethodCall(MAP_REPLACE, name, DataHolder.wrap(p1), DataHolder.wrap(p2));
   public static final MethodCallInterface.FourParameters CALL_MAP_REPLACEIFPRESENT = (name, p1, p2, p3) -> new MethodCall(MAP_REPLACEIFPRESENT, name, DataHolder.wrap(p1), DataHolder.wrap(p2), DataHolder.wrap(p3));
   public static final MethodCallInterface.OneParameter CALL_MAP_CLEAR = (name) -> new MethodCall(MAP_CLEAR, name);
+  // A TTL write gets a random id, so its expiration doesn't remove a later write of the same key.
+  public static final MethodCallInterface.FourParameters CALL_MAP_PUT_TTL = (name, p1, p2, p3) -> new MethodCall(MAP_PUT_TTL, name, DataHolder.wrap(p1), DataHolder.wrap(p2), ThreadLocalRandom.current().nextLong(), p3);
+  public static final MethodCallInterface.FourParameters CALL_MAP_PUTIFABSENT_TTL = (name, p1, p2, p3) -> new MethodCall(MAP_PUTIFABSENT_TTL, name, DataHolder.wrap(p1), DataHolder.wrap(p2), ThreadLocalRandom.current().nextLong(), p3);
+  public static final MethodCallInterface.TwoParameters CALL_MAP_EXPIRE = (name, p1) -> new MethodCall(MAP_EXPIRE, name, wrapKeys((Map<?, ?>) p1));
+  public static final MethodCallInterface.TwoParameters CALL_MAP_IMPORT = (name, p1) -> new MethodCall(MAP_IMPORT, name, p1);
+  public static final MethodCallInterface.ThreeParameters CALL_MAP_GET = (name, p1, p2) -> new MethodCall(MAP_GET, name, DataHolder.wrap(p1), p2);
+  public static final MethodCallInterface.TwoParameters CALL_MAP_INVALIDATE = (name, p1) -> new MethodCall(MAP_INVALIDATE, name, DataHolder.wrap(p1));
+  public static final MethodCallInterface.OneParameter CALL_MAP_SIZE = (name) -> new MethodCall(MAP_SIZE, name);
+  public static final MethodCallInterface.OneParameter CALL_MAP_KEYS = (name) -> new MethodCall(MAP_KEYS, name);
 
   private static final Map<Short, Method> methods = new HashMap<>();
 
+  // The calls whose arguments are the name of a map then a key, and that touch that key only.
+  private static final Set<Short> keyed = new HashSet<>(Arrays.asList(
+      MULTIMAP_ADD, MULTIMAP_REMOVE,
+      MAP_PUT, MAP_PUTIFABSENT, MAP_REMOVE, MAP_REMOVEIFPRESENT, MAP_REPLACE, MAP_REPLACEIFPRESENT,
+      MAP_PUT_TTL, MAP_PUTIFABSENT_TTL, MAP_GET, MAP_INVALIDATE));
+
   static {
     try {
+      methods.put(BATCH, RpcServerObjDelegate.class.getMethod("batch", MethodCallBatch.class));
+      methods.put(STATE_DELTA, RpcServerObjDelegate.class.getMethod("stateDelta", long.class, long.class));
+      methods.put(STATE_POSITION, RpcServerObjDelegate.class.getMethod("statePosition", long.class));
+
       methods.put(MULTIMAP_ADD, RpcServerObjDelegate.class.getMethod("multiMapAdd", String.class, DataHolder.class, DataHolder.class));
       methods.put(MULTIMAP_REMOVE, RpcServerObjDelegate.class.getMethod("multiMapRemove", String.class, DataHolder.class, DataHolder.class));
       methods.put(MULTIMAP_REMOVE_ALL, RpcServerObjDelegate.class.getMethod("multiMapRemoveAll", String.class, DataHolder.class));
+      methods.put(MULTIMAP_REMOVE_ALL_MATCHING, RpcServerObjDelegate.class.getMethod("multiMapRemoveAllMatching", String.class, DataHolder.class));
 
       methods.put(MAP_PUT, RpcServerObjDelegate.class.getMethod("mapPut", String.class, DataHolder.class, DataHolder.class));
       methods.put(MAP_PUTALL, RpcServerObjDelegate.class.getMethod("mapPutAll", String.class, Map.class));
@@ -83,20 +131,100 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
       methods.put(MAP_REPLACE, RpcServerObjDelegate.class.getMethod("mapReplace", String.class, DataHolder.class, DataHolder.class));
       methods.put(MAP_REPLACEIFPRESENT, RpcServerObjDelegate.class.getMethod("mapReplaceIfPresent", String.class, DataHolder.class, DataHolder.class, DataHolder.class));
       methods.put(MAP_CLEAR, RpcServerObjDelegate.class.getMethod("mapClear", String.class));
+      methods.put(MAP_PUT_TTL, RpcServerObjDelegate.class.getMethod("mapPutTtl", String.class, DataHolder.class, DataHolder.class, long.class, long.class));
+      methods.put(MAP_PUTIFABSENT_TTL, RpcServerObjDelegate.class.getMethod("mapPutIfAbsentTtl", String.class, DataHolder.class, DataHolder.class, long.class, long.class));
+      methods.put(MAP_EXPIRE, RpcServerObjDelegate.class.getMethod("mapExpire", String.class, Map.class));
+      methods.put(MAP_IMPORT, RpcServerObjDelegate.class.getMethod("mapImport", String.class, byte[].class));
+      methods.put(MAP_GET, RpcServerObjDelegate.class.getMethod("mapGet", String.class, DataHolder.class, Address.class));
+      methods.put(MAP_SIZE, RpcServerObjDelegate.class.getMethod("mapOwnedSize", String.class));
+      methods.put(MAP_KEYS, RpcServerObjDelegate.class.getMethod("mapOwnedKeys", String.class));
+      methods.put(MAP_INVALIDATE, RpcServerObjDelegate.class.getMethod("mapInvalidate", String.class, DataHolder.class));
     } catch (NoSuchMethodException e) {
       throw new RuntimeException(e);
     }
   }
 
   public RpcServerObjDelegate(RpcMapService mapService, RpcMultiMapService multiMapService) {
+    this(mapService, multiMapService, new StateLog(0));
+  }
+
+  public RpcServerObjDelegate(RpcMapService mapService, RpcMultiMapService multiMapService, StateLog stateLog) {
     this.mapService = mapService;
     this.multiMapService = multiMapService;
+    this.stateLog = stateLog;
+  }
+
+  private static Map<DataHolder, DataHolder> wrapAll(Map<?, ?> map) {
+    Map<DataHolder, DataHolder> wrapped = new HashMap<>(map.size() * 4 / 3 + 1);
+    map.forEach((k, v) -> wrapped.put(DataHolder.wrap(k), DataHolder.wrap(v)));
+    return wrapped;
+  }
+
+  private static Map<DataHolder, Object> wrapKeys(Map<?, ?> map) {
+    Map<DataHolder, Object> wrapped = new HashMap<>(map.size() * 4 / 3 + 1);
+    map.forEach((k, v) -> wrapped.put(DataHolder.wrap(k), v));
+    return wrapped;
+  }
+
+  static boolean keyed(short id) {
+    return keyed.contains(id);
+  }
+
+  /**
+   * @return the name of the method called by the calls of id {@code id}
+   */
+  static String methodName(short id) {
+    Method method = methods.get(id);
+    return method != null ? method.getName() : String.valueOf(id);
   }
 
   public MethodLookup getMethodLookup() {
     return methods::get;
   }
 
+  public Object[] batch(MethodCallBatch batch) {
+    logTrace("RpcServerObjDelegate.batch batch = [%s]", batch);
+    Object[] results = new Object[batch.size()];
+    for (int i = 0; i < batch.size(); i++) {
+      try {
+        results[i] = methods.get(batch.id(i)).invoke(this, batch.args(i));
+      } catch (InvocationTargetException e) {
+        results[i] = e.getCause();
+      } catch (Exception e) {
+        results[i] = e;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @return the position of the state log followed by the changes since {@code position}, or {@code null} when the
+   * state log can't tell them and the caller needs a full state transfer
+   */
+  public byte[] stateDelta(long epoch, long position) throws IOException {
+    if (isTraceEnabled()) {
+      logTrace(() -> "RpcServerObjDelegate.stateDelta epoch = [" + epoch + "], position = [" + position + "]");
+    }
+    StateLog.Delta delta = stateLog.since(epoch, position);
+    if (delta == null) {
+      return null;
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeLong(delta.position());
+    multiMapService.writeDelta(out, delta);
+    mapService.writeDelta(out, delta);
+    out.flush();
+    return output.toByteArray();
+  }
+
+  /**
+   * @return the current position of the state log, or {@code -1} when it isn't the log of {@code epoch}
+   */
+  public long statePosition(long epoch) {
+    return epoch == stateLog.epoch() ? stateLog.position() : -1;
+  }
+
   //RpcMultiMapService
   @Override
   public <K, V> MultiMap<K, V> multiMapCreate(String name) {
@@ -105,26 +233,26 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
 
   @Override
   public <K, V> void multiMapAdd(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcServerObjDelegate.multiMapAdd name = [" + name + "], k = [" + k + "], v = [" + v + "]");
+    logTrace("RpcServerObjDelegate.multiMapAdd name = [%s], k = [%s], v = [%s]", name, k, v);
     multiMapService.multiMapAdd(name, k, v);
   }
 
   @Override
   public <K, V> boolean multiMapRemove(String name, DataHolder<K> k, DataHolder<V> v) {
-    logTrace(() -> "RpcServerObjDelegate.multiMapRemove name = [" + name + "], k = [" + k + "], v = [" + v + "]");
+    logTrace("RpcServerObjDelegate.multiMapRemove name = [%s], k = [%s], v = [%s]", name, k, v);
     return multiMapService.multiMapRemove(name, k, v);
   }
 
   @Override
   public <K, V> void multiMapRemoveAll(String name, DataHolder<V> v) {
-    logTrace(() -> "RpcServerObjDelegate.multiMapRemoveAll name = [" + name + "], v = [" + v + "]");
+    logTrace("RpcServerObjDelegate.multiMapRemoveAll name = [%s], v = [%s]", name, v);
     multiMapService.multiMapRemoveAll(name, v);
   }
 
   @Override
   public <K, V> void multiMapRemoveAllMatching(String name, DataHolder<Predicate<V>> p) {
-    logTrace(() -> "RpcServerObjDelegate.multiMapRemoveAllMatching name = [" + name + "]");
-    multiMapService.multiMapRemoveAll(name, p);
+    logTrace("RpcServerObjDelegate.multiMapRemoveAllMatching name = [%s]", name);
+    multiMapService.multiMapRemoveAllMatching(name, p);
   }
 
   @Override
@@ -137,6 +265,16 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public void writeDelta(OutputStream output, StateLog.Delta delta) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void readDelta(InputStream input) {
+    throw new UnsupportedOperationException();
+  }
+
   //RpcMapService
   @Override
   public <K, V> Map<K, V> mapCreate(String name) {
@@ -183,6 +321,51 @@ public class RpcServerObjDelegate implements RpcMapService, RpcMultiMapService,
     mapService.mapClear(name);
   }
 
+  @Override
+  public <K, V> void mapPutTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl) {
+    mapService.mapPutTtl(name, k, v, id, ttl);
+  }
+
+  @Override
+  public <K, V> DataHolder<V> mapPutIfAbsentTtl(String name, DataHolder<K> k, DataHolder<V> v, long id, long ttl) {
+    return mapService.mapPutIfAbsentTtl(name, k, v, id, ttl);
+  }
+
+  @Override
+  public <K> void mapExpire(String name, Map<DataHolder<K>, Long> ids) {
+    mapService.mapExpire(name, ids);
+  }
+
+  @Override
+  public void expire(ExpirationHandler handler) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public <K, V> DataHolder<V> mapGet(String name, DataHolder<K> k, Address reader) {
+    return mapService.mapGet(name, k, reader);
+  }
+
+  @Override
+  public <K> void mapInvalidate(String name, DataHolder<K> k) {
+    mapService.mapInvalidate(name, k);
+  }
+
+  @Override
+  public void mapImport(String name, byte[] entries) throws IOException, ClassNotFoundException {
+    mapService.mapImport(name, entries);
+  }
+
+  @Override
+  public int mapOwnedSize(String name) {
+    return mapService.mapOwnedSize(name);
+  }
+
+  @Override
+  public Object[] mapOwnedKeys(String name) {
+    return mapService.mapOwnedKeys(name);
+  }
+
   @Override
   public Logger log() {
     return LOG;
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the state of a service as a sequence of named sections, each made of records grouped in chunks of bounded
+ * size. A chunk is the unit the joiner buffers: it is read in full and its records are applied one by one before the
+ * next chunk is read, so neither side ever holds more than a chunk of the state on top of the maps themselves.
+ * <p>
+ * Flow control comes from the state transfer protocol: writes to its output stream block while the joiner is behind.
+ */
+public final class StateChunks {
+
+  /**
+   * Size in bytes above which a chunk of state records is sent.
+   */
+  public static final String CHUNK_SIZE_PROPERTY = "vertx.jgroups.state.chunk.size";
+
+  /**
+   * Number of threads decoding and applying the chunks of state received on join.
+   */
+  public static final String PARALLELISM_PROPERTY = "vertx.jgroups.state.parallelism";
+
+  static final int CHUNK_SIZE = Integer.getInteger(CHUNK_SIZE_PROPERTY, 64 * 1024);
+  static final int PARALLELISM = Integer.getInteger(PARALLELISM_PROPERTY, 1);
+
+  @FunctionalInterface
+  interface RecordWriter {
+    void write(DataOutput out) throws IOException;
+  }
+
+  @FunctionalInterface
+  interface RecordReader {
+    void read(DataInput in) throws IOException, ClassNotFoundException;
+  }
+
+  @FunctionalInterface
+  interface SectionReader {
+    RecordReader section(String name);
+  }
+
+  @FunctionalInterface
+  private interface ChunkReader {
+    void read(RecordReader reader, int records, byte[] chunk) throws IOException, ClassNotFoundException;
+  }
+
+  static class Writer {
+
+    private final DataOutputStream out;
+    private final int chunkSize;
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(chunk);
+    private int records;
+
+    Writer(OutputStream output, int chunkSize) {
+      this.out = new DataOutputStream(output);
+      this.chunkSize = chunkSize;
+    }
+
+    void section(String name) throws IOException {
+      out.writeBoolean(true);
+      out.writeUTF(name);
+    }
+
+    void record(RecordWriter writer) throws IOException {
+      writer.write(record);
+      records++;
+      if (chunk.size() >= chunkSize) {
+        flushChunk();
+      }
+    }
+
+    void endSection() throws IOException {
+      flushChunk();
+      out.writeInt(0);
+    }
+
+    void end() throws IOException {
+      out.writeBoolean(false);
+      out.flush();
+    }
+
+    private void flushChunk() throws IOException {
+      if (records > 0) {
+        record.flush();
+        out.writeInt(records);
+        out.writeInt(chunk.size());
+        chunk.writeTo(out);
+        chunk.reset();
+        records = 0;
+      }
+    }
+  }
+
+  private StateChunks() {
+  }
+
+  static Writer writer(OutputStream output) {
+    return new Writer(output, CHUNK_SIZE);
+  }
+
+  static void read(InputStream input, SectionReader sections) throws IOException, ClassNotFoundException {
+    read(input, sections, PARALLELISM);
+  }
+
+  /**
+   * Reads the state written by a {@link Writer}. With a parallelism above one, the chunks are applied by a pool of
+   * threads while the next ones are read from the stream. Records of a chunk are still applied in order, chunks may
+   * be applied in any order, which is fine as a key never spans two records.
+   */
+  static void read(InputStream input, SectionReader sections, int parallelism) throws IOException, ClassNotFoundException {
+    if (parallelism <= 1) {
+      readChunks(input, sections, StateChunks::apply);
+      return;
+    }
+
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    ForkJoinPool pool = new ForkJoinPool(parallelism, (p) -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+      thread.setContextClassLoader(classLoader);
+      return thread;
+    }, null, false);
+    // Bounds the chunks waiting in memory when the pool can't keep up with the stream.
+    int maxInFlight = parallelism * 2;
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    try {
+      readChunks(input, sections, (reader, records, chunk) -> {
+        inFlight.acquireUninterruptibly();
+        rethrow(failure.get());
+        pool.execute(() -> {
+          try {
+            apply(reader, records, chunk);
+          } catch (Throwable t) {
+            // An error too, e.g. out of memory, would otherwise only end the task and go unnoticed.
+            failure.compareAndSet(null, t);
+          } finally {
+            inFlight.release();
+          }
+        });
+      });
+      inFlight.acquireUninterruptibly(maxInFlight);
+      rethrow(failure.get());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void readChunks(InputStream input, SectionReader sections, ChunkReader chunks) throws IOException, ClassNotFoundException {
+    DataInputStream in = new DataInputStream(input);
+    while (in.readBoolean()) {
+      RecordReader reader = sections.section(in.readUTF());
+      int records;
+      while ((records = in.readInt()) > 0) {
+        byte[] chunk = new byte[in.readInt()];
+        in.readFully(chunk);
+        chunks.read(reader, records, chunk);
+      }
+    }
+  }
+
+  private static void apply(RecordReader reader, int records, byte[] chunk) throws IOException, ClassNotFoundException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk));
+    for (int i = 0; i < records; i++) {
+      reader.read(in);
+    }
+  }
+
+  private static void rethrow(Throwable e) throws IOException, ClassNotFoundException {
+    if (e instanceof Error) {
+      throw (Error) e;
+    } else if (e instanceof IOException) {
+      throw (IOException) e;
+    } else if (e instanceof ClassNotFoundException) {
+      throw (ClassNotFoundException) e;
+    } else if (e != null) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Optional compression of the state stream. The state starts with a header naming the codec it was written with, so
+ * the joining member decodes whatever the state provider chose, whatever its own configuration is.
+ */
+public final class StateCompression {
+
+  /**
+   * Codec of the state sent to joining members, {@code none} or {@code deflate}.
+   */
+  public static final String COMPRESSION_PROPERTY = "vertx.jgroups.state.compression";
+
+  private static final int MAGIC = 0x564A5354;
+  private static final byte NONE = 0;
+  private static final byte DEFLATE = 1;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  @FunctionalInterface
+  public interface StateWriter {
+    void write(OutputStream output) throws Exception;
+  }
+
+  @FunctionalInterface
+  public interface StateReader {
+    void read(InputStream input) throws Exception;
+  }
+
+  private StateCompression() {
+  }
+
+  public static void write(OutputStream output, StateWriter writer) throws Exception {
+    write(output, codec(System.getProperty(COMPRESSION_PROPERTY, "none")), writer);
+  }
+
+  static void write(OutputStream output, byte codec, StateWriter writer) throws Exception {
+    DataOutputStream header = new DataOutputStream(output);
+    header.writeInt(MAGIC);
+    header.writeByte(codec);
+    if (codec == DEFLATE) {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(output, deflater, BUFFER_SIZE);
+        writer.write(deflaterOutput);
+        deflaterOutput.finish();
+      } finally {
+        deflater.end();
+      }
+    } else {
+      writer.write(output);
+    }
+    output.flush();
+  }
+
+  public static void read(InputStream input, StateReader reader) throws Exception {
+    DataInputStream header = new DataInputStream(input);
+    if (header.readInt() != MAGIC) {
+      throw new StreamCorruptedException("Unexpected state header, is the state provider running the same version?");
+    }
+    byte codec = header.readByte();
+    switch (codec) {
+      case NONE:
+        reader.read(input);
+        break;
+      case DEFLATE:
+        Inflater inflater = new Inflater();
+        try {
+          reader.read(new InflaterInputStream(input, inflater, BUFFER_SIZE));
+        } finally {
+          inflater.end();
+        }
+        break;
+      default:
+        throw new StreamCorruptedException("Unknown state codec " + codec);
+    }
+  }
+
+  static byte codec(String name) {
+    switch (name) {
+      case "none":
+        return NONE;
+      case "deflate":
+        return DEFLATE;
+      default:
+        throw new IllegalArgumentException("Unknown value for " + COMPRESSION_PROPERTY + ": " + name);
+    }
+  }
+}
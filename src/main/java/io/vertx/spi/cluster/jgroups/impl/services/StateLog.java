@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded log of the keys written on this member, used to send a member that rejoins only what changed since the
+ * state it already holds.
+ * <p>
+ * Every write gets a sequence number. The log keeps, for each key, the sequence number of its last write, so a key
+ * written over and over takes a single slot and a workload writing a bounded set of keys never truncates the log.
+ * When it is full, the least recently written key is dropped and members whose state is older than that write can't
+ * be served a delta anymore.
+ * <p>
+ * A delta holds the current value of the keys written since a given sequence number, not the operations themselves,
+ * so applying it twice or on top of some of these writes is harmless. Writes that touch many keys at once mark the
+ * whole map as changed.
+ */
+public class StateLog {
+
+  /**
+   * Max number of distinct keys tracked, {@code 0} disables delta state transfer.
+   */
+  public static final String SIZE_PROPERTY = "vertx.jgroups.state.log.size";
+
+  private static final Object ALL = new Object();
+
+  // Identifies this log, a sequence number is meaningless against the log of another member or of a previous run.
+  private final long epoch = ThreadLocalRandom.current().nextLong();
+  private final int capacity;
+  private final LinkedHashMap<Write, Long> writes = new LinkedHashMap<>();
+  private int spaces;
+  private long sequence;
+  private long truncated;
+
+  public StateLog() {
+    this(Integer.getInteger(SIZE_PROPERTY, 0));
+  }
+
+  public StateLog(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public boolean enabled() {
+    return capacity > 0;
+  }
+
+  public long epoch() {
+    return epoch;
+  }
+
+  public synchronized long position() {
+    return sequence;
+  }
+
+  /**
+   * @return the keys written since {@code position}, or {@code null} when this log can't tell
+   */
+  public synchronized Delta since(long epoch, long position) {
+    if (capacity == 0 || epoch != this.epoch || position < truncated || position > sequence) {
+      return null;
+    }
+    Delta delta = new Delta(sequence);
+    for (Map.Entry<Write, Long> entry : writes.entrySet()) {
+      if (entry.getValue() > position) {
+        delta.add(entry.getKey());
+      }
+    }
+    return delta;
+  }
+
+  /**
+   * @return a namespace for the maps of a service, maps of different services may share the same name
+   */
+  public synchronized Space space() {
+    return new Space(spaces++);
+  }
+
+  private synchronized void write(Write write) {
+    sequence++;
+    writes.remove(write);
+    writes.put(write, sequence);
+    if (writes.size() > capacity) {
+      Iterator<Map.Entry<Write, Long>> eldest = writes.entrySet().iterator();
+      truncated = eldest.next().getValue();
+      eldest.remove();
+    }
+  }
+
+  public class Space {
+
+    private final int id;
+
+    private Space(int id) {
+      this.id = id;
+    }
+
+    public void write(String map, Object key) {
+      // Checked first, the writes of all the maps would otherwise contend on the log for nothing.
+      if (enabled()) {
+        StateLog.this.write(new Write(id, map, key));
+      }
+    }
+
+    public void writeAll(String map) {
+      if (enabled()) {
+        StateLog.this.write(new Write(id, map, ALL));
+      }
+    }
+  }
+
+  public static class Delta {
+
+    private final long position;
+    // A null set of keys stands for the whole map
+    private final Map<Integer, Map<String, Set<Object>>> spaces = new HashMap<>();
+
+    private Delta(long position) {
+      this.position = position;
+    }
+
+    private void add(Write write) {
+      Map<String, Set<Object>> maps = spaces.computeIfAbsent(write.space, (space) -> new HashMap<>());
+      if (write.key == ALL) {
+        maps.put(write.map, null);
+      } else if (!maps.containsKey(write.map) || maps.get(write.map) != null) {
+        maps.computeIfAbsent(write.map, (map) -> new HashSet<>()).add(write.key);
+      }
+    }
+
+    /**
+     * @return the position of the log this delta brings a member to
+     */
+    public long position() {
+      return position;
+    }
+
+    /**
+     * @return the keys written per map of the {@code space}, a map mapped to {@code null} changed as a whole
+     */
+    public Map<String, Set<Object>> keys(Space space) {
+      return spaces.getOrDefault(space.id, Collections.emptyMap());
+    }
+  }
+
+  private static final class Write {
+
+    private final int space;
+    private final String map;
+    private final Object key;
+
+    private Write(int space, String map, Object key) {
+      this.space = space;
+      this.map = map;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Write)) {
+        return false;
+      }
+      Write other = (Write) o;
+      return space == other.space && map.equals(other.map) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * space + map.hashCode()) + key.hashCode();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import org.jgroups.Address;
+import org.jgroups.util.Util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+
+/**
+ * The member a state comes from and the position of its {@link StateLog} the state includes.
+ */
+public final class StatePosition {
+
+  private final Address provider;
+  private final long epoch;
+  private final long position;
+
+  public StatePosition(Address provider, long epoch, long position) {
+    this.provider = provider;
+    this.epoch = epoch;
+    this.position = position;
+  }
+
+  public Address provider() {
+    return provider;
+  }
+
+  public long epoch() {
+    return epoch;
+  }
+
+  public long position() {
+    return position;
+  }
+
+  public StatePosition at(long position) {
+    return new StatePosition(provider, epoch, position);
+  }
+
+  public void writeTo(DataOutput out) throws Exception {
+    Util.writeAddress(provider, out);
+    out.writeLong(epoch);
+    out.writeLong(position);
+  }
+
+  public static StatePosition readFrom(DataInput in) throws Exception {
+    return new StatePosition(Util.readAddress(in), in.readLong(), in.readLong());
+  }
+
+  @Override
+  public String toString() {
+    return "StatePosition{provider=" + provider + ", epoch=" + epoch + ", position=" + position + "}";
+  }
+}
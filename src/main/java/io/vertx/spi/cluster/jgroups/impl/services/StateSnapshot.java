@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copy of the cluster maps on local disk, to seed a restarting member.
+ * <p>
+ * A snapshot is the {@link StatePosition} of the state it holds followed by the state, in the format of the state
+ * transfer. It is written to a temporary file moved over the previous snapshot, so a crash while writing leaves the
+ * previous one in place. It is read from a memory mapped file.
+ */
+public class StateSnapshot {
+
+  /**
+   * Path of the snapshot file, snapshots are disabled when not set.
+   */
+  public static final String FILE_PROPERTY = "vertx.jgroups.snapshot.file";
+
+  /**
+   * Time in milliseconds between two snapshots.
+   */
+  public static final String INTERVAL_PROPERTY = "vertx.jgroups.snapshot.interval";
+
+  private static final int MAGIC = 0x564A5353;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path file;
+
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * @return whether the state was read
+     */
+    boolean load(StatePosition position, InputStream state) throws Exception;
+  }
+
+  public StateSnapshot(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * @return the snapshot configured with the system properties, {@code null} when disabled
+   */
+  public static StateSnapshot fromProperties() {
+    String file = System.getProperty(FILE_PROPERTY);
+    return file != null ? new StateSnapshot(Paths.get(file)) : null;
+  }
+
+  public static long interval() {
+    return Long.getLong(INTERVAL_PROPERTY, 60000L);
+  }
+
+  public void write(StatePosition position, StateCompression.StateWriter writer) throws Exception {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE)) {
+      DataOutputStream header = new DataOutputStream(output);
+      header.writeInt(MAGIC);
+      position.writeTo(header);
+      header.flush();
+      writer.write(output);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @return whether a snapshot was found and read by the {@code loader}
+   */
+  public boolean load(Loader loader) throws Exception {
+    if (!Files.isRegularFile(file)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      DataInputStream input = new DataInputStream(new ByteBufferInputStream(buffer));
+      if (input.readInt() != MAGIC) {
+        throw new StreamCorruptedException("Not a snapshot file: " + file);
+      }
+      return loader.load(StatePosition.readFrom(input), input);
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(len, buffer.remaining());
+      buffer.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
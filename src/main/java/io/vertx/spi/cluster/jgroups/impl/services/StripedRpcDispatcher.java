@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import io.vertx.spi.cluster.jgroups.impl.support.LambdaLogger;
+import io.vertx.spi.cluster.jgroups.impl.support.StripedExecutor;
+import org.jgroups.Channel;
+import org.jgroups.MembershipListener;
+import org.jgroups.Message;
+import org.jgroups.MessageListener;
+import org.jgroups.blocks.MethodCall;
+import org.jgroups.blocks.Response;
+import org.jgroups.blocks.RpcDispatcher;
+
+import java.lang.reflect.Method;
+
+/**
+ * Applies the incoming calls on lanes rather than on the JGroups delivery thread.
+ * <p>
+ * A call on a single key goes to the lane of its map and key, so calls on different keys are applied in parallel
+ * while calls on the same key keep the order they were delivered in. Any other call, e.g. a clear or a batch, waits
+ * for all the lanes. Out of band calls aren't ordered anyway, they are still applied on the thread delivering them.
+ */
+public class StripedRpcDispatcher extends RpcDispatcher implements LambdaLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(StripedRpcDispatcher.class);
+
+  /**
+   * Number of lanes applying the incoming calls, {@code 0} applies them on the JGroups delivery threads.
+   */
+  public static final String LANES_PROPERTY = "vertx.jgroups.rpc.lanes";
+
+  private final Object serverObj;
+  private final StripedExecutor lanes;
+
+  public StripedRpcDispatcher(Channel channel, MessageListener l, MembershipListener l2, Object serverObj) {
+    this(channel, l, l2, serverObj, Integer.getInteger(LANES_PROPERTY, 0));
+  }
+
+  public StripedRpcDispatcher(Channel channel, MessageListener l, MembershipListener l2, Object serverObj, int lanes) {
+    super(channel, l, l2, serverObj);
+    this.serverObj = serverObj;
+    this.lanes = lanes > 0 ? new StripedExecutor(lanes, "vertx-jgroups-rpc-lane") : null;
+    asyncDispatching(lanes > 0);
+  }
+
+  @Override
+  public void handle(Message request, Response response) throws Exception {
+    if (lanes == null || request.isFlagSet(Message.Flag.OOB)) {
+      apply(() -> handle(request), response);
+      return;
+    }
+    // Decoded once, to pick the lane and then to apply the call.
+    MethodCall call;
+    try {
+      call = (MethodCall) getRequestMarshaller().objectFromBuffer(request.getRawBuffer(), request.getOffset(), request.getLength());
+    } catch (Exception e) {
+      apply(() -> {
+        throw e;
+      }, response);
+      return;
+    }
+    Integer stripe = stripe(call);
+    if (stripe != null) {
+      lanes.execute(stripe, () -> apply(() -> invoke(call), response));
+    } else {
+      lanes.executeAll(() -> apply(() -> invoke(call), response));
+    }
+  }
+
+  /**
+   * @return a hash of the map and key of {@code call} when it is a call on a single key, {@code null} otherwise
+   */
+  static Integer stripe(MethodCall call) {
+    Object[] args = call.getArgs();
+    if (!RpcServerObjDelegate.keyed(call.getId()) || args == null || args.length < 2) {
+      return null;
+    }
+    Object name = args[0];
+    Object key = args[1];
+    if (name == null || !(key instanceof DataHolder) || ((DataHolder) key).unwrap() == null) {
+      return null;
+    }
+    return 31 * name.hashCode() + ((DataHolder) key).unwrap().hashCode();
+  }
+
+  private Object invoke(MethodCall call) throws Exception {
+    Method method = getMethodLookup().findMethod(call.getId());
+    if (method == null) {
+      throw new IllegalArgumentException("No method with id " + call.getId());
+    }
+    call.setMethod(method);
+    return call.invoke(serverObj);
+  }
+
+  private void apply(Call call, Response response) {
+    Object result;
+    try {
+      result = call.apply();
+    } catch (Throwable t) {
+      logDebug(() -> "Failed to apply a call: " + t);
+      if (response != null) {
+        response.send(t, true);
+      }
+      return;
+    }
+    if (response != null) {
+      response.send(result, false);
+    }
+  }
+
+  /**
+   * Waits for the calls delivered so far to be applied.
+   */
+  public void drain() throws InterruptedException {
+    if (lanes != null) {
+      lanes.drain();
+    }
+  }
+
+  /**
+   * @return the number of calls waiting in each lane, empty when calls are applied on the delivery threads
+   */
+  public int[] queueDepths() {
+    return lanes != null ? lanes.queueDepths() : new int[0];
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (lanes != null) {
+      lanes.shutdown();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Call {
+    Object apply() throws Exception;
+  }
+
+  @Override
+  public Logger log() {
+    return LOG;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+/**
+ * Flight Recorder events of the cluster manager: the RPCs, the state transfers and the views.
+ * <p>
+ * The events need the {@code jdk.jfr} module, they are emitted by the Java 11 classes of the jar. On Java 8 this no-op
+ * implementation is used. Each method returns {@code null} when its event isn't recorded, so nothing is allocated
+ * then.
+ */
+public class ClusterEvents {
+
+  public static final ClusterEvents EVENTS = load();
+
+  public interface Rpc {
+
+    /**
+     * The call was handed to the members, its size is known.
+     */
+    void sent();
+
+    void completed(int responders, boolean succeeded);
+  }
+
+  public interface StateTransfer {
+
+    void completed(long bytes, boolean succeeded);
+  }
+
+  public interface ViewChange {
+
+    /**
+     * The listeners of the view have been called.
+     */
+    void dispatched();
+  }
+
+  protected ClusterEvents() {
+  }
+
+  private static ClusterEvents load() {
+    try {
+      return (ClusterEvents) Class.forName(ClusterEvents.class.getPackage().getName() + ".JfrClusterEvents")
+          .getDeclaredConstructor().newInstance();
+    } catch (Throwable t) {
+      // Java 8, or a runtime without the jdk.jfr module.
+      return new ClusterEvents();
+    }
+  }
+
+  /**
+   * @param method the name of the method called
+   * @param map    the name of the map, empty for calls on no map
+   * @param mode   the response mode of the call
+   */
+  public Rpc rpc(String method, String map, String mode) {
+    return null;
+  }
+
+  /**
+   * Size of the call marshalled by the current thread, it goes to the {@link #rpc} this thread is sending.
+   */
+  public void marshalled(int bytes) {
+  }
+
+  /**
+   * @param sent {@code true} for the state sent to a joining member, {@code false} for the state received
+   */
+  public StateTransfer stateTransfer(boolean sent) {
+    return null;
+  }
+
+  /**
+   * @return whether {@link #viewChange} is recorded, its arguments are only worth computing then
+   */
+  public boolean viewEnabled() {
+    return false;
+  }
+
+  public ViewChange viewChange(int members, int joined, int left) {
+    return null;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counters and latencies of the calls made by a member on the cluster maps, of its state transfers and of the views
+ * it went through.
+ * <p>
+ * Nothing is recorded unless enabled, {@link #operation} then returns {@code null}.
+ */
+public class ClusterMetrics implements ClusterMetricsMXBean, LambdaLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClusterMetrics.class);
+
+  /**
+   * Records the metrics and publishes them through JMX.
+   */
+  public static final String PROPERTY = "vertx.jgroups.metrics";
+
+  public static final String JMX_DOMAIN = "io.vertx.spi.cluster.jgroups";
+
+  private static final int[] NO_LANES = new int[0];
+
+  private final boolean enabled;
+  private final ConcurrentMap<String, ConcurrentMap<String, OperationMetrics>> operations = new ConcurrentHashMap<>();
+  private final OperationMetrics stateSent = new OperationMetrics();
+  private final OperationMetrics stateReceived = new OperationMetrics();
+  private final LongAdder stateSentBytes = new LongAdder();
+  private final LongAdder stateReceivedBytes = new LongAdder();
+  private final LongAdder viewChanges = new LongAdder();
+  private volatile int members;
+  private volatile Supplier<int[]> laneQueueDepths = () -> NO_LANES;
+  private final ConcurrentMap<String, NearCache<?, ?>> nearCaches = new ConcurrentHashMap<>();
+  private ObjectName objectName;
+
+  public ClusterMetrics(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public static ClusterMetrics fromProperties() {
+    return new ClusterMetrics(Boolean.getBoolean(PROPERTY));
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the metrics of the operation {@code operation} on the map {@code name}, {@code null} when disabled
+   */
+  public OperationMetrics operation(String name, String operation) {
+    if (!enabled) {
+      return null;
+    }
+    // Looked up before computing, the bins of a concurrent map are locked by computeIfAbsent.
+    ConcurrentMap<String, OperationMetrics> map = operations.get(name);
+    if (map == null) {
+      map = operations.computeIfAbsent(name, (key) -> new ConcurrentHashMap<>());
+    }
+    OperationMetrics metrics = map.get(operation);
+    if (metrics == null) {
+      metrics = map.computeIfAbsent(operation, (key) -> new OperationMetrics());
+    }
+    return metrics;
+  }
+
+  public void stateSent(long nanos, long bytes, boolean succeeded) {
+    if (enabled) {
+      stateSent.record(nanos, succeeded);
+      stateSentBytes.add(bytes);
+    }
+  }
+
+  public void stateReceived(long nanos, long bytes, boolean succeeded) {
+    if (enabled) {
+      stateReceived.record(nanos, succeeded);
+      stateReceivedBytes.add(bytes);
+    }
+  }
+
+  public void viewChanged(int members) {
+    viewChanges.increment();
+    this.members = members;
+  }
+
+  public void laneQueueDepths(Supplier<int[]> laneQueueDepths) {
+    this.laneQueueDepths = laneQueueDepths;
+  }
+
+  public void nearCache(String name, NearCache<?, ?> nearCache) {
+    if (nearCache != null) {
+      nearCaches.put(name, nearCache);
+    }
+  }
+
+  /**
+   * Publishes the metrics through JMX, under the name of the member, when enabled.
+   */
+  public void register(String member) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      objectName = new ObjectName(JMX_DOMAIN + ":type=ClusterMetrics,member=" + ObjectName.quote(member));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    } catch (JMException e) {
+      objectName = null;
+      logWarn(() -> String.format("Unable to publish the cluster metrics through JMX: %s", e.getMessage()));
+    }
+  }
+
+  public void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    } catch (JMException e) {
+      logDebug(() -> String.format("Unable to unregister the cluster metrics: %s", e.getMessage()));
+    }
+    objectName = null;
+  }
+
+  @Override
+  public Map<String, OperationStats> getOperations() {
+    Map<String, OperationStats> stats = new TreeMap<>();
+    operations.forEach((name, map) -> map.forEach((operation, metrics) -> stats.put(name + "/" + operation, metrics.stats())));
+    return stats;
+  }
+
+  @Override
+  public OperationStats getStateSent() {
+    return stateSent.stats();
+  }
+
+  @Override
+  public long getStateSentBytes() {
+    return stateSentBytes.sum();
+  }
+
+  @Override
+  public OperationStats getStateReceived() {
+    return stateReceived.stats();
+  }
+
+  @Override
+  public long getStateReceivedBytes() {
+    return stateReceivedBytes.sum();
+  }
+
+  @Override
+  public long getViewChanges() {
+    return viewChanges.sum();
+  }
+
+  @Override
+  public int getMembers() {
+    return members;
+  }
+
+  @Override
+  public int[] getLaneQueueDepths() {
+    return laneQueueDepths.get();
+  }
+
+  @Override
+  public Map<String, Long> getNearCacheHits() {
+    Map<String, Long> hits = new TreeMap<>();
+    nearCaches.forEach((name, nearCache) -> hits.put(name, nearCache.hits()));
+    return hits;
+  }
+
+  @Override
+  public Map<String, Long> getNearCacheMisses() {
+    Map<String, Long> misses = new TreeMap<>();
+    nearCaches.forEach((name, nearCache) -> misses.put(name, nearCache.misses()));
+    return misses;
+  }
+
+  /**
+   * @return the metrics, as the Vert.x metrics snapshots: by metric name, the latencies in nanoseconds
+   */
+  public JsonObject snapshot() {
+    JsonObject snapshot = new JsonObject();
+    getOperations().forEach((operation, stats) -> snapshot.put("vertx.jgroups.maps." + operation, stats.toJson()));
+    snapshot.put("vertx.jgroups.state.sent", getStateSent().toJson().put("bytes", getStateSentBytes()));
+    snapshot.put("vertx.jgroups.state.received", getStateReceived().toJson().put("bytes", getStateReceivedBytes()));
+    snapshot.put("vertx.jgroups.views", new JsonObject().put("count", getViewChanges()).put("members", getMembers()));
+    JsonArray lanes = new JsonArray();
+    for (int depth : getLaneQueueDepths()) {
+      lanes.add(depth);
+    }
+    snapshot.put("vertx.jgroups.lanes", new JsonObject().put("queueDepths", lanes));
+    Map<String, Long> misses = getNearCacheMisses();
+    getNearCacheHits().forEach((name, hits) -> snapshot.put("vertx.jgroups.nearCache." + name,
+        new JsonObject().put("hits", hits).put("misses", misses.get(name))));
+    return snapshot;
+  }
+
+  @Override
+  public Logger log() {
+    return LOG;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import java.util.Map;
+
+/**
+ * The metrics of a member, as published through JMX.
+ */
+public interface ClusterMetricsMXBean {
+
+  /**
+   * @return the calls made by this member, by map name and operation, e.g. {@code __vertx.subs/multiMapAdd}
+   */
+  Map<String, OperationStats> getOperations();
+
+  OperationStats getStateSent();
+
+  long getStateSentBytes();
+
+  OperationStats getStateReceived();
+
+  long getStateReceivedBytes();
+
+  long getViewChanges();
+
+  int getMembers();
+
+  int[] getLaneQueueDepths();
+
+  Map<String, Long> getNearCacheHits();
+
+  Map<String, Long> getNearCacheMisses();
+}
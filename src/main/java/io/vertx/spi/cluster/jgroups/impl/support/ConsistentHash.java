@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.VertxException;
+import org.jgroups.util.UUID;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable hash ring assigning keys to members.
+ * <p>
+ * Each member is placed on the ring at several points derived from its identity, a key belongs to the members met first
+ * when walking the ring clockwise from the hash of the key. Every member computes the same ring from the same view,
+ * and a member joining or leaving only moves the keys next to its own points.
+ */
+public final class ConsistentHash<T> {
+
+  private static final int VIRTUAL_NODES = 64;
+
+  private final List<T> members;
+  private final long[] points;
+  private final int[] owners;
+
+  public ConsistentHash(List<T> members) {
+    this.members = Collections.unmodifiableList(new ArrayList<>(members));
+    long[][] ring = new long[members.size() * VIRTUAL_NODES][];
+    for (int m = 0; m < members.size(); m++) {
+      String name = identity(members.get(m));
+      for (int v = 0; v < VIRTUAL_NODES; v++) {
+        ring[m * VIRTUAL_NODES + v] = new long[]{hash((name + '#' + v).getBytes(StandardCharsets.UTF_8)), m};
+      }
+    }
+    Arrays.sort(ring, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    this.points = new long[ring.length];
+    this.owners = new int[ring.length];
+    for (int i = 0; i < ring.length; i++) {
+      points[i] = ring[i][0];
+      owners[i] = (int) ring[i][1];
+    }
+  }
+
+  public List<T> members() {
+    return members;
+  }
+
+  /**
+   * @return the {@code count} members owning {@code hash}, the primary owner first
+   */
+  public List<T> owners(long hash, int count) {
+    int wanted = Math.min(count, members.size());
+    List<T> result = new ArrayList<>(wanted);
+    if (wanted == 0) {
+      return result;
+    }
+    int start = Arrays.binarySearch(points, hash);
+    if (start < 0) {
+      start = -start - 1;
+    }
+    for (int i = 0; result.size() < wanted; i++) {
+      T member = members.get(owners[(start + i) % points.length]);
+      if (!result.contains(member)) {
+        result.add(member);
+      }
+    }
+    return result;
+  }
+
+  private static String identity(Object member) {
+    // The string of an address is its logical name once known, which members do not learn all at the same time.
+    return member instanceof UUID ? ((UUID) member).toStringLong() : member.toString();
+  }
+
+  /**
+   * @return a hash of {@code key} every member computes the same, whatever its JVM
+   */
+  public static long hash(Object key) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+    try {
+      DataCodec.write(key, new DataOutputStream(bytes));
+    } catch (IOException e) {
+      throw new VertxException(e);
+    }
+    return hash(bytes.toByteArray());
+  }
+
+  private static long hash(byte[] bytes) {
+    // FNV-1a, with a final mix so that close inputs spread over the whole ring.
+    long h = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.VertxException;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.impl.clustered.ClusterNodeInfo;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ServerID;
+import io.vertx.core.shareddata.impl.ClusterSerializable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of the keys and values stored in the cluster maps.
+ * <p>
+ * Every value starts with a one byte type tag. The types Vert.x puts in the maps all the time (strings, primitives,
+ * buffers, json, event bus subscriptions) get a dedicated tag, so neither their class name nor a Java serialization
+ * stream header go over the wire. Other {@link ClusterSerializable}s are written with their class name, anything
+ * else falls back to Java serialization. Payloads are prefixed with a variable length size.
+ */
+public final class DataCodec {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte BOOLEAN = 2;
+  private static final byte BYTE = 3;
+  private static final byte SHORT = 4;
+  private static final byte INTEGER = 5;
+  private static final byte LONG = 6;
+  private static final byte FLOAT = 7;
+  private static final byte DOUBLE = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte BYTES = 10;
+  private static final byte BUFFER = 11;
+  private static final byte JSON_OBJECT = 12;
+  private static final byte JSON_ARRAY = 13;
+  private static final byte SERVER_ID = 14;
+  private static final byte CLUSTER_NODE_INFO = 15;
+  private static final byte CLUSTER_SERIALIZABLE = 16;
+  private static final byte SERIALIZABLE = 17;
+
+  private DataCodec() {
+  }
+
+  public static void write(Object data, DataOutput out) throws IOException {
+    if (data == null) {
+      out.writeByte(NULL);
+    } else if (data instanceof String) {
+      out.writeByte(STRING);
+      writeBytes(((String) data).getBytes(StandardCharsets.UTF_8), out);
+    } else if (data instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) data);
+    } else if (data instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) data);
+    } else if (data instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) data);
+    } else if (data instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) data);
+    } else if (data instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) data);
+    } else if (data instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) data);
+    } else if (data instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) data);
+    } else if (data instanceof Character) {
+      out.writeByte(CHARACTER);
+      out.writeChar((Character) data);
+    } else if (data instanceof byte[]) {
+      out.writeByte(BYTES);
+      writeBytes((byte[]) data, out);
+    } else if (data instanceof Buffer) {
+      out.writeByte(BUFFER);
+      writeBytes(((Buffer) data).getBytes(), out);
+    } else if (data.getClass() == JsonObject.class) {
+      out.writeByte(JSON_OBJECT);
+      writeClusterSerializable((ClusterSerializable) data, out);
+    } else if (data.getClass() == JsonArray.class) {
+      out.writeByte(JSON_ARRAY);
+      writeClusterSerializable((ClusterSerializable) data, out);
+    } else if (data.getClass() == ServerID.class) {
+      out.writeByte(SERVER_ID);
+      writeClusterSerializable((ClusterSerializable) data, out);
+    } else if (data.getClass() == ClusterNodeInfo.class) {
+      out.writeByte(CLUSTER_NODE_INFO);
+      writeClusterSerializable((ClusterSerializable) data, out);
+    } else if (data instanceof ClusterSerializable) {
+      out.writeByte(CLUSTER_SERIALIZABLE);
+      writeBytes(data.getClass().getName().getBytes(StandardCharsets.UTF_8), out);
+      writeClusterSerializable((ClusterSerializable) data, out);
+    } else if (data instanceof Serializable) {
+      out.writeByte(SERIALIZABLE);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+        oos.writeObject(data);
+      }
+      writeBytes(bytes.toByteArray(), out);
+    } else {
+      throw new NotSerializableException(data.getClass().getName());
+    }
+  }
+
+  public static Object read(DataInput in) throws IOException, ClassNotFoundException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+      case BOOLEAN:
+        return in.readBoolean();
+      case BYTE:
+        return in.readByte();
+      case SHORT:
+        return in.readShort();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case FLOAT:
+        return in.readFloat();
+      case DOUBLE:
+        return in.readDouble();
+      case CHARACTER:
+        return in.readChar();
+      case BYTES:
+        return readBytes(in);
+      case BUFFER:
+        return Buffer.buffer(readBytes(in));
+      case JSON_OBJECT:
+        return readClusterSerializable(new JsonObject(), in);
+      case JSON_ARRAY:
+        return readClusterSerializable(new JsonArray(), in);
+      case SERVER_ID:
+        return readClusterSerializable(new ServerID(), in);
+      case CLUSTER_NODE_INFO:
+        return readClusterSerializable(new ClusterNodeInfo(), in);
+      case CLUSTER_SERIALIZABLE:
+        String className = new String(readBytes(in), StandardCharsets.UTF_8);
+        Class<?> clazz = Thread.currentThread().getContextClassLoader().loadClass(className);
+        try {
+          return readClusterSerializable((ClusterSerializable) clazz.newInstance(), in);
+        } catch (InstantiationException | IllegalAccessException e) {
+          throw new VertxException(e);
+        }
+      case SERIALIZABLE:
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+          return ois.readObject();
+        }
+      default:
+        throw new StreamCorruptedException("Unknown type tag " + type);
+    }
+  }
+
+  private static void writeClusterSerializable(ClusterSerializable data, DataOutput out) throws IOException {
+    Buffer buffer = Buffer.buffer();
+    data.writeToBuffer(buffer);
+    writeBytes(buffer.getBytes(), out);
+  }
+
+  private static Object readClusterSerializable(ClusterSerializable data, DataInput in) throws IOException {
+    data.readFromBuffer(0, Buffer.buffer(readBytes(in)));
+    return data;
+  }
+
+  private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+    writeVarInt(bytes.length, out);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput in) throws IOException {
+    byte[] bytes = new byte[readVarInt(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  static void writeVarInt(int value, DataOutput out) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  static int readVarInt(DataInput in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("Malformed variable length int");
+  }
+}
@@ -16,16 +16,16 @@
 
 package io.vertx.spi.cluster.jgroups.impl.support;
 
-import io.vertx.core.VertxException;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.shareddata.impl.ClusterSerializable;
+import org.jgroups.util.Streamable;
 
-import java.io.Externalizable;
-import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectOutput;
+import java.io.*;
 
-public class DataHolder<T> implements Externalizable {
+/**
+ * Wraps the keys and values of map operations in the RPC arguments. It is {@link Streamable} so JGroups writes it
+ * with the compact {@link DataCodec} encoding instead of a Java serialization stream, it stays {@link Externalizable}
+ * for the places where it ends up inside a serialized object graph.
+ */
+public class DataHolder<T> implements Streamable, Externalizable {
 
   private T data;
 
@@ -47,39 +47,24 @@ public class DataHolder<T> implements Externalizable {
     return "DataHolder{" + data + "}";
   }
 
+  @Override
+  public void writeTo(DataOutput out) throws Exception {
+    DataCodec.write(data, out);
+  }
+
+  @Override
+  public void readFrom(DataInput in) throws Exception {
+    data = (T) DataCodec.read(in);
+  }
+
   @Override
   public void writeExternal(ObjectOutput out) throws IOException {
-    boolean isClusterSerializable = ClusterSerializable.class.isInstance(data);
-    out.writeBoolean(isClusterSerializable);
-    if (isClusterSerializable) {
-      out.writeUTF(data.getClass().getName());
-      Buffer buffer = Buffer.buffer();
-      ((ClusterSerializable) data).writeToBuffer(buffer);
-      byte[] bytes = buffer.getBytes();
-      out.write(bytes.length);
-      out.write(bytes);
-    } else {
-      out.writeObject(data);
-    }
+    DataCodec.write(data, out);
   }
 
   @Override
   public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-    boolean isClusterSerializable = in.readBoolean();
-    if (isClusterSerializable) {
-      String className = in.readUTF();
-      Class<?> clazz = Thread.currentThread().getContextClassLoader().loadClass(className);
-      try {
-        data = (T) clazz.newInstance();
-        byte[] bytes = new byte[in.read()];
-        in.read(bytes);
-        ((ClusterSerializable) data).readFromBuffer(0, Buffer.buffer(bytes));
-      } catch (InstantiationException | IllegalAccessException e) {
-        throw new VertxException(e);
-      }
-    } else {
-      data = (T) in.readObject();
-    }
+    data = (T) DataCodec.read(in);
   }
 
 }
@@ -20,10 +20,25 @@ import io.vertx.core.logging.Logger;
 
 import java.util.function.Supplier;
 
+/**
+ * Logs with the {@link #log()} of the implementing class.
+ * <p>
+ * A lambda capturing the parts of its message is allocated at each call, whatever the level. The calls made on every
+ * map operation rather give a format and its arguments, the message is only formatted when the level is enabled. A
+ * primitive argument would still be boxed, such calls check {@link #isTraceEnabled()} first.
+ */
 public interface LambdaLogger {
 
   Logger log();
 
+  default boolean isTraceEnabled() {
+    return log().isTraceEnabled();
+  }
+
+  default boolean isDebugEnabled() {
+    return log().isDebugEnabled();
+  }
+
   default void logError(Supplier<String> message) {
     log().error(message.get());
   }
@@ -34,6 +49,30 @@ public interface LambdaLogger {
     }
   }
 
+  default void logTrace(String format, Object arg) {
+    if (log().isTraceEnabled()) {
+      log().trace(String.format(format, arg));
+    }
+  }
+
+  default void logTrace(String format, Object arg1, Object arg2) {
+    if (log().isTraceEnabled()) {
+      log().trace(String.format(format, arg1, arg2));
+    }
+  }
+
+  default void logTrace(String format, Object arg1, Object arg2, Object arg3) {
+    if (log().isTraceEnabled()) {
+      log().trace(String.format(format, arg1, arg2, arg3));
+    }
+  }
+
+  default void logTrace(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+    if (log().isTraceEnabled()) {
+      log().trace(String.format(format, arg1, arg2, arg3, arg4));
+    }
+  }
+
   default void logWarn(Supplier<String> message) {
     log().warn(message.get());
   }
@@ -44,6 +83,30 @@ public interface LambdaLogger {
     }
   }
 
+  default void logDebug(String format, Object arg) {
+    if (log().isDebugEnabled()) {
+      log().debug(String.format(format, arg));
+    }
+  }
+
+  default void logDebug(String format, Object arg1, Object arg2) {
+    if (log().isDebugEnabled()) {
+      log().debug(String.format(format, arg1, arg2));
+    }
+  }
+
+  default void logDebug(String format, Object arg1, Object arg2, Object arg3) {
+    if (log().isDebugEnabled()) {
+      log().debug(String.format(format, arg1, arg2, arg3));
+    }
+  }
+
+  default void logDebug(String format, Object arg1, Object arg2, Object arg3, Object arg4) {
+    if (log().isDebugEnabled()) {
+      log().debug(String.format(format, arg1, arg2, arg3, arg4));
+    }
+  }
+
   default void logInfo(Supplier<String> message) {
     if (log().isInfoEnabled()) {
       log().info(message.get());
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the entries a member read from the owners of a partitioned map, least recently used first out.
+ * <p>
+ * The owners tell the members that read an entry when it changes, the cached copy is then invalidated. A read racing
+ * with an invalidation could put back the value it replaces, so a value is only cached when no invalidation came in
+ * since its read was sent.
+ */
+public class NearCache<K, V> {
+
+  /**
+   * Max number of entries cached per partitioned map, {@code 0} disables the near cache.
+   */
+  public static final String SIZE_PROPERTY = "vertx.jgroups.map.near.cache.size";
+
+  private final LinkedHashMap<K, Optional<V>> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private long invalidations;
+
+  public NearCache(int capacity) {
+    this.entries = new LinkedHashMap<K, Optional<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Optional<V>> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * @return a near cache sized by the {@link #SIZE_PROPERTY}, or {@code null} when disabled
+   */
+  public static <K, V> NearCache<K, V> fromProperties() {
+    int capacity = Integer.getInteger(SIZE_PROPERTY, 0);
+    return capacity > 0 ? new NearCache<>(capacity) : null;
+  }
+
+  /**
+   * @return the cached value, {@link Optional#empty()} when the entry is known to be absent, or {@code null} on a miss
+   */
+  public synchronized Optional<V> get(K k) {
+    Optional<V> value = entries.get(k);
+    if (value != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return value;
+  }
+
+  /**
+   * @return the stamp to give to {@link #put} with the value read from the owners
+   */
+  public synchronized long stamp() {
+    return invalidations;
+  }
+
+  public synchronized void put(K k, V v, long stamp) {
+    if (stamp == invalidations) {
+      entries.put(k, Optional.ofNullable(v));
+    }
+  }
+
+  public synchronized void invalidate(K k) {
+    invalidations++;
+    entries.remove(k);
+  }
+
+  public synchronized void clear() {
+    invalidations++;
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of calls of an operation, how many failed, and their latencies.
+ */
+public class OperationMetrics {
+
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LongAdder errors = new LongAdder();
+
+  public void record(long nanos, boolean succeeded) {
+    latencies.record(nanos);
+    if (!succeeded) {
+      errors.increment();
+    }
+  }
+
+  public long count() {
+    return latencies.count();
+  }
+
+  public OperationStats stats() {
+    return new OperationStats(latencies.count(), errors.sum(), latencies.mean(),
+        latencies.percentile(50), latencies.percentile(99), latencies.percentile(99.9), latencies.max());
+  }
+}
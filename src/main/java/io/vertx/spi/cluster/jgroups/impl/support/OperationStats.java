@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.json.JsonObject;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Counters and latencies of an operation at the time they were read, the latencies are in nanoseconds.
+ */
+public class OperationStats {
+
+  private final long count;
+  private final long errors;
+  private final long mean;
+  private final long p50;
+  private final long p99;
+  private final long p999;
+  private final long max;
+
+  @ConstructorProperties({"count", "errors", "mean", "p50", "p99", "p999", "max"})
+  public OperationStats(long count, long errors, long mean, long p50, long p99, long p999, long max) {
+    this.count = count;
+    this.errors = errors;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p99 = p99;
+    this.p999 = p999;
+    this.max = max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getMean() {
+    return mean;
+  }
+
+  public long getP50() {
+    return p50;
+  }
+
+  public long getP99() {
+    return p99;
+  }
+
+  public long getP999() {
+    return p999;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public JsonObject toJson() {
+    return new JsonObject()
+        .put("count", count)
+        .put("errors", errors)
+        .put("mean", mean)
+        .put("p50", p50)
+        .put("p99", p99)
+        .put("p999", p999)
+        .put("max", max);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a fixed number of single threaded lanes: the tasks given the same hash run one after the other, in
+ * the order they were given, tasks of different hashes run in parallel.
+ * <p>
+ * A task given to all the lanes waits for the tasks given before it to each lane, and the tasks given after it wait
+ * for it, whatever their lane.
+ */
+public class StripedExecutor {
+
+  private final ThreadPoolExecutor[] lanes;
+  // Tasks for all the lanes are queued in the same order on every lane, or two of them would wait for each other.
+  private final Object barrierLock = new Object();
+
+  public StripedExecutor(int lanes, String name) {
+    this.lanes = new ThreadPoolExecutor[lanes];
+    for (int i = 0; i < lanes; i++) {
+      String threadName = name + "-" + i;
+      this.lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), (runnable) -> {
+        Thread thread = new Thread(runnable, threadName);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  public int lanes() {
+    return lanes.length;
+  }
+
+  public void execute(int hash, Runnable task) {
+    lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)].execute(task);
+  }
+
+  public void executeAll(Runnable task) {
+    AtomicInteger arrived = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(1);
+    Runnable barrier = () -> {
+      // The last lane to get there runs the task, the others wait for it.
+      if (arrived.incrementAndGet() == lanes.length) {
+        try {
+          task.run();
+        } finally {
+          done.countDown();
+        }
+      } else {
+        try {
+          done.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    synchronized (barrierLock) {
+      for (ThreadPoolExecutor lane : lanes) {
+        lane.execute(barrier);
+      }
+    }
+  }
+
+  /**
+   * Waits for the tasks given so far to be done.
+   */
+  public void drain() throws InterruptedException {
+    CountDownLatch drained = new CountDownLatch(1);
+    executeAll(drained::countDown);
+    drained.await();
+  }
+
+  /**
+   * @return the number of tasks waiting in each lane
+   */
+  public int[] queueDepths() {
+    int[] depths = new int[lanes.length];
+    for (int i = 0; i < lanes.length; i++) {
+      depths[i] = lanes[i].getQueue().size();
+    }
+    return depths;
+  }
+
+  public void shutdown() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdownNow();
+    }
+  }
+}
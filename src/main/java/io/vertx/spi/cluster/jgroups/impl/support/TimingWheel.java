@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: scheduling and cancelling a timeout are constant time, whatever the number of timeouts.
+ * <p>
+ * Each level has 64 slots, a slot of the first level spans one tick and a slot of the next level spans all the slots
+ * of the previous one. A timeout sits in the lowest level whose range covers its deadline, and moves down a level each
+ * time the wheel below completes a turn, until it fires from the first level. Timeouts are linked in their slot
+ * through their own fields, so the wheel allocates nothing per timeout.
+ */
+public class TimingWheel<T extends TimingWheel.Timeout> {
+
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 4;
+
+  private final long tick;
+  // Circular lists, each slot head is a sentinel.
+  private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+  private long current;
+  private int size;
+
+  /**
+   * Base class of the timeouts scheduled on a wheel.
+   */
+  public static class Timeout {
+
+    private long deadline;
+    private Timeout prev;
+    private Timeout next;
+
+    public boolean scheduled() {
+      return next != null;
+    }
+
+    private void unlink() {
+      prev.next = next;
+      next.prev = prev;
+      prev = null;
+      next = null;
+    }
+  }
+
+  /**
+   * @param tick resolution of the wheel, in the unit of the times given to it
+   * @param now  current time
+   */
+  public TimingWheel(long tick, long now) {
+    this.tick = tick;
+    this.current = now / tick;
+    for (Timeout[] level : slots) {
+      for (int i = 0; i < SLOTS; i++) {
+        Timeout head = new Timeout();
+        head.prev = head;
+        head.next = head;
+        level[i] = head;
+      }
+    }
+  }
+
+  /**
+   * Schedules {@code timeout} at {@code deadline}, moving it when it is already scheduled.
+   */
+  public synchronized void schedule(T timeout, long deadline) {
+    Timeout node = timeout;
+    if (node.scheduled()) {
+      node.unlink();
+      size--;
+    }
+    node.deadline = deadline;
+    // The slot of the current tick has already fired.
+    add(node, current + 1);
+    size++;
+  }
+
+  /**
+   * @return whether {@code timeout} was scheduled
+   */
+  public synchronized boolean cancel(T timeout) {
+    Timeout node = timeout;
+    if (!node.scheduled()) {
+      return false;
+    }
+    node.unlink();
+    size--;
+    return true;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Moves the wheel to {@code now}.
+   *
+   * @return the timeouts whose deadline has passed, they are no longer scheduled
+   */
+  public List<T> advance(long now) {
+    List<T> expired = new ArrayList<>();
+    synchronized (this) {
+      long target = now / tick;
+      while (current < target) {
+        current++;
+        cascade();
+        Timeout head = slots[0][(int) (current & SLOT_MASK)];
+        while (head.next != head) {
+          Timeout timeout = head.next;
+          timeout.unlink();
+          size--;
+          expired.add((T) timeout);
+        }
+      }
+    }
+    return expired;
+  }
+
+  private void cascade() {
+    // Each time a level completes a turn, the next slot of the level above is spread over the levels below.
+    for (int level = 1; level < LEVELS; level++) {
+      if (((current >> (SLOT_BITS * (level - 1))) & SLOT_MASK) != 0) {
+        return;
+      }
+      Timeout head = slots[level][(int) ((current >> (SLOT_BITS * level)) & SLOT_MASK)];
+      while (head.next != head) {
+        Timeout timeout = head.next;
+        timeout.unlink();
+        // Cascading comes before the current slot fires, a timeout due now still makes it.
+        add(timeout, current);
+      }
+    }
+  }
+
+  private void add(Timeout timeout, long earliest) {
+    long ticks = Math.max(timeout.deadline / tick, earliest);
+    long delay = ticks - current;
+    int level = 0;
+    while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+      level++;
+    }
+    if (delay >= 1L << (SLOT_BITS * LEVELS)) {
+      // Beyond the range of the wheel, parked in the farthest slot and placed again when it comes up.
+      ticks = current + (1L << (SLOT_BITS * LEVELS)) - 1;
+    }
+    Timeout head = slots[level][(int) ((ticks >> (SLOT_BITS * level)) & SLOT_MASK)];
+    timeout.prev = head.prev;
+    timeout.next = head;
+    head.prev.next = timeout;
+    head.prev = timeout;
+  }
+}
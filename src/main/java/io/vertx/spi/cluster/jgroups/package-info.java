@@ -143,6 +143,168 @@
  * For full documentation on how to configure the transport differently or use a different transport please consult the
  * JGroups documentation.
  *
+ * === Running members in one JVM
+ *
+ * Tests and benchmarks often need a few members in the same JVM. `JGroupsClusterManager.loopbackCluster` starts them
+ * on the packaged `loopback-jgroups.xml` stack: the members exchange their messages in memory, they don't need any
+ * network and join each other right away.
+ *
+ * [source,java]
+ * ----
+ * JGroupsClusterManager.loopbackCluster(3, ar -> {
+ *   LoopbackCluster cluster = ar.result();
+ *   Vertx vertx = cluster.vertx(0);
+ *   // ...
+ *   cluster.close(closed -> {});
+ * });
+ * ----
+ *
+ * Each call creates a cluster of its own, its members don't see the members of any other cluster.
+ *
+ * == Tuning
+ *
+ * The cluster manager reads a few tuning knobs from system properties. They all have defaults matching the historical
+ * behavior, so you only need them when the defaults don't fit your load.
+ *
+ * === Batching cluster map writes
+ *
+ * Every write on a cluster wide map or on the event bus subscription map is a cluster wide RPC. When many writes are
+ * issued in a short time, e.g. when deploying many verticles registering consumers, they can be shipped together:
+ *
+ * * `vertx.jgroups.rpc.batch.size`: max number of writes sent in a single RPC (default `1`, i.e. batching disabled)
+ * * `vertx.jgroups.rpc.batch.window`: max time in milliseconds a write waits for others to join its batch (default `1`)
+ *
+ * Writes of a batch are applied in order on each member and each write still completes its own handler.
+ *
+ * === Subscription lists
+ *
+ * Each event bus address is backed by a list of subscribers. By default every registration copies that list, which gets
+ * expensive when thousands of handlers register on the same address in a burst. Setting
+ * `vertx.jgroups.multimap.buffered` to `true` uses lists that append in constant time and only copy once the burst is
+ * over, on the next read.
+ *
+ * === State transfer
+ *
+ * A joining member receives the content of the cluster wide maps from the coordinator. The state is streamed in chunks
+ * and applied entry by entry as it arrives, so its size doesn't need to fit in memory twice.
+ *
+ * * `vertx.jgroups.state.timeout`: max time in milliseconds a joining member waits for the state (default `10000`)
+ * * `vertx.jgroups.state.chunk.size`: size in bytes of the chunks the state is sent in (default `65536`)
+ * * `vertx.jgroups.state.parallelism`: number of threads applying the received chunks, useful when joining a cluster
+ * with many maps (default `1`)
+ * * `vertx.jgroups.state.compression`: `deflate` to compress the state sent by this member, `none` to send it as is
+ * (default `none`). The event bus subscriptions compress very well, at the cost of some CPU on both sides.
+ * * `vertx.jgroups.state.log.size`: number of recently written keys each member tracks (default `0`, i.e. disabled).
+ * When enabled, a member on the losing side of a network partition only fetches the keys written since it got its state,
+ * when the member it got its state from still tracks them, instead of the whole state once the partition heals.
+ *
+ * === Entries with a TTL
+ *
+ * `AsyncMap.put` and `AsyncMap.putIfAbsent` accept a TTL. Each member tracks the TTL of the entries on a timing wheel
+ * and the coordinator removes expired entries from the whole cluster, so all members see an entry go at the same point
+ * of their updates. An entry written again loses its TTL, unless the new write has one of its own.
+ *
+ * * `vertx.jgroups.map.ttl.tick`: resolution in milliseconds of the expiration (default `10`)
+ *
+ * === Snapshots
+ *
+ * A restarting member can be seeded from a copy of the cluster wide maps on local disk, instead of receiving the whole
+ * state again. It needs the state log, see `vertx.jgroups.state.log.size` above: without it no snapshot is written and a
+ * warning is logged.
+ *
+ * * `vertx.jgroups.snapshot.file`: path of the snapshot file (not set by default, i.e. disabled)
+ * * `vertx.jgroups.snapshot.interval`: time in milliseconds between two snapshots (default `60000`)
+ *
+ * On startup, the snapshot is only used when the member it got its state from is still in the cluster and can send the
+ * keys written since, otherwise the member falls back to a regular state transfer. A last snapshot is written when the
+ * cluster manager leaves.
+ *
+ * === Partitioned maps
+ *
+ * By default every member holds a copy of every async map. Large maps can instead be partitioned: each entry is stored
+ * by a primary owner and a number of backups only, picked by consistent hashing of the key over the cluster members.
+ * When a member joins or leaves, the entries move to their new owners and the members drop the ones they no longer own.
+ *
+ * * `vertx.jgroups.map.partitioned`: comma separated names of the async maps to partition, a name ending with `*`
+ * matches all maps starting with the rest of it (not set by default, i.e. all maps are replicated)
+ * * `vertx.jgroups.map.backups`: number of copies of each entry on top of the primary one (default `1`)
+ *
+ * The setting must be the same on all members. Writes and reads of a key go to its owners only, `size` and `keys` ask
+ * every member. Partitioned maps are not part of the state transfer nor of the snapshots, and can't be used as sync
+ * maps. Their keys must encode the same on every member, e.g. strings, numbers or `ClusterSerializable` objects.
+ *
+ * A member reading entries it doesn't own can keep a copy of them in a near cache, the least recently used entries are
+ * evicted first. The owners remember which members read an entry and tell them when it changes, the copy is then
+ * dropped. The near caches are emptied on every view change.
+ *
+ * * `vertx.jgroups.map.near.cache.size`: max number of entries cached per partitioned map (default `0`, i.e. disabled)
+ * * `vertx.jgroups.map.near.cache.readers`: max number of keys per partitioned map whose readers an owner remembers,
+ * the readers of the least recently read key are told to drop their copy beyond it (default `100000`)
+ *
+ * === Write acknowledgement
+ *
+ * A write is applied by every member holding the map, by default its handler is completed once they all did so. A
+ * lower level completes it sooner, a slow member no longer holds up the writes:
+ *
+ * * `vertx.jgroups.ack`: level of all the writes, `all`, `majority`, `first` or `none` (default `all`)
+ * * `vertx.jgroups.ack.<map name>`: level of the writes of one map, e.g. `vertx.jgroups.ack.__vertx.subs=first` for
+ * the event bus subscriptions
+ *
+ * With `majority` or `first`, the handler may run before this member applied the write, a read right after it may not
+ * see it yet. With `none`, the handler runs as soon as the write is sent, failures go unnoticed and the result, e.g. of
+ * `putIfAbsent`, is always `null`. Writes below `all` are not batched. Sync maps always wait for all the members. An
+ * unknown level fails the join of the cluster manager.
+ *
+ * === Out of band reads
+ *
+ * The calls that only read, i.e. the reads of partitioned maps, their `size` and `keys`, and the state queries of the
+ * delta state transfer and snapshots, commute with each other. They can be sent out of band: a member handles them on
+ * the JGroups OOB thread pool, concurrently, instead of queueing them behind the writes it delivers in order.
+ *
+ * * `vertx.jgroups.rpc.oob.reads`: sends the reads out of band (default `false`)
+ *
+ * An out of band read may overtake a write this member sent before it, when the write hasn't completed yet.
+ *
+ * === Receive lanes
+ *
+ * A member applies the calls it receives one after the other, on the thread delivering them. The calls can instead be
+ * applied on lanes: a call on a single key of a map goes to the lane of its map and key, so calls on different keys are
+ * applied in parallel while the calls on a key keep their order. The calls on a whole map, e.g. a `clear`, and the
+ * batches wait for all the lanes to be done with the calls delivered before them.
+ *
+ * * `vertx.jgroups.rpc.lanes`: number of lanes, `0` applies the calls on the delivering thread (default `0`)
+ *
+ * The lanes are drained before the state is sent to a joining member.
+ *
+ * === Metrics
+ *
+ * With `vertx.jgroups.metrics` set to `true`, each member records:
+ *
+ * * the number, failures and latencies of the calls it makes on each cluster map, e.g. `__vertx.subs/multiMapAdd`,
+ * including the reads served from its local copy (`localGet`)
+ * * the duration and size of the state it sends to joining members and of the state it receives
+ * * the number of views it went through and the current number of members
+ * * the queue depth of each receive lane, and the hits and misses of the near caches
+ *
+ * The latencies are recorded in nanoseconds, as the mean, 50th, 99th and 99.9th percentiles and maximum. The metrics are
+ * published through JMX, as the `io.vertx.spi.cluster.jgroups:type=ClusterMetrics,member=<node id>` MXBean, and are
+ * returned as a JSON object by `JGroupsClusterManager.metricsSnapshot()`.
+ *
+ * * `vertx.jgroups.metrics`: records and publishes the metrics (default `false`)
+ *
+ * === Flight Recorder events
+ *
+ * Running on Java 11 or later, the cluster manager emits Flight Recorder events, disabled until a recording enables them:
+ *
+ * * `io.vertx.jgroups.Rpc`: a call made on the members, with its method, map, response mode, marshalled size, number of
+ * responders and outcome. The calls shipped together in a batch are a single `batch` event
+ * * `io.vertx.jgroups.StateTransfer`: the state sent to a joining member or received from the coordinator, with its size
+ * * `io.vertx.jgroups.ViewChange`: a new view, with the number of members that joined and left, lasting until its
+ * listeners have been called
+ *
+ * They can be enabled in a `.jfc` settings file given to `-XX:StartFlightRecording=settings=...`, or from JDK Mission
+ * Control. On Java 8 no event is emitted.
+ *
  * == Trouble shooting clustering
  *
  * If the default multicast configuration is not working here are some common causes:
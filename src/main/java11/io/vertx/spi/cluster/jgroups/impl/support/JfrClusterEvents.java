@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emits the {@link ClusterEvents} as Flight Recorder events, loaded by {@link ClusterEvents} when running on Java 11
+ * or later.
+ */
+class JfrClusterEvents extends ClusterEvents {
+
+  // The call the current thread is sending, the marshaller gives it its size.
+  static final ThreadLocal<RpcEvent> SENDING = new ThreadLocal<>();
+
+  private final EventType rpc = EventType.getEventType(RpcEvent.class);
+  private final EventType stateTransfer = EventType.getEventType(StateTransferEvent.class);
+  private final EventType viewChange = EventType.getEventType(ViewChangeEvent.class);
+
+  @Override
+  public Rpc rpc(String method, String map, String mode) {
+    if (!rpc.isEnabled()) {
+      return null;
+    }
+    RpcEvent event = new RpcEvent();
+    event.method = method;
+    event.map = map;
+    event.mode = mode;
+    event.begin();
+    SENDING.set(event);
+    return event;
+  }
+
+  @Override
+  public void marshalled(int bytes) {
+    if (rpc.isEnabled()) {
+      RpcEvent event = SENDING.get();
+      if (event != null) {
+        event.bytes = bytes;
+      }
+    }
+  }
+
+  @Override
+  public StateTransfer stateTransfer(boolean sent) {
+    if (!stateTransfer.isEnabled()) {
+      return null;
+    }
+    StateTransferEvent event = new StateTransferEvent();
+    event.sent = sent;
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public boolean viewEnabled() {
+    return viewChange.isEnabled();
+  }
+
+  @Override
+  public ViewChange viewChange(int members, int joined, int left) {
+    if (!viewChange.isEnabled()) {
+      return null;
+    }
+    ViewChangeEvent event = new ViewChangeEvent();
+    event.members = members;
+    event.joined = joined;
+    event.left = left;
+    event.begin();
+    return event;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.vertx.jgroups.Rpc")
+@Label("Cluster RPC")
+@Category({"Vert.x", "JGroups"})
+@Description("A call made on the members of the cluster, from the time it was issued to the time it completed")
+class RpcEvent extends Event implements ClusterEvents.Rpc {
+
+  @Label("Method")
+  String method;
+
+  @Label("Map")
+  String map;
+
+  @Label("Response Mode")
+  String mode;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+
+  @Label("Responders")
+  int responders;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  @Override
+  public void sent() {
+    JfrClusterEvents.SENDING.remove();
+  }
+
+  @Override
+  public void completed(int responders, boolean succeeded) {
+    end();
+    this.responders = responders;
+    this.succeeded = succeeded;
+    commit();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.vertx.jgroups.StateTransfer")
+@Label("Cluster State Transfer")
+@Category({"Vert.x", "JGroups"})
+@Description("The state of the cluster maps sent to a joining member, or received from another member")
+class StateTransferEvent extends Event implements ClusterEvents.StateTransfer {
+
+  @Label("Sent")
+  @Description("True for the state sent to a joining member, false for the state received")
+  boolean sent;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  @Override
+  public void completed(long bytes, boolean succeeded) {
+    end();
+    this.bytes = bytes;
+    this.succeeded = succeeded;
+    commit();
+  }
+}
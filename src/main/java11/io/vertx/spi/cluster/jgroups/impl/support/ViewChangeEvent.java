@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.vertx.jgroups.ViewChange")
+@Label("Cluster View Change")
+@Category({"Vert.x", "JGroups"})
+@Description("A new view of the cluster, its duration is the time taken to call the listeners of the view")
+class ViewChangeEvent extends Event implements ClusterEvents.ViewChange {
+
+  @Label("Members")
+  int members;
+
+  @Label("Joined")
+  int joined;
+
+  @Label("Left")
+  int left;
+
+  @Override
+  public void dispatched() {
+    end();
+    commit();
+  }
+}
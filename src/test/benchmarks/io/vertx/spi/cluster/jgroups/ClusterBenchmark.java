@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Map and multimap calls made on a {@link LoopbackCluster} of {@code nodes} members. Each invocation waits for the call to complete, the members take turns to make the calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusterBenchmark {
+
+  private static final int KEYS = 1000;
+
+  @Param({"3", "5"})
+  public int nodes;
+
+  private LoopbackCluster cluster;
+  private final List<AsyncMap<String, String>> maps = new ArrayList<>();
+  private final List<AsyncMultiMap<String, String>> multiMaps = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Setup
+  public void setup() throws Exception {
+    cluster = await((handler) -> JGroupsClusterManager.loopbackCluster(nodes, handler));
+    for (int i = 0; i < nodes; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps.add(await((handler) -> clusterManager.getAsyncMap("benchmark", handler)));
+      multiMaps.add(await((handler) -> clusterManager.getAsyncMultiMap("benchmark.subs", handler)));
+    }
+    for (int i = 0; i < KEYS; i++) {
+      String key = "key-" + i;
+      await((Handler<AsyncResult<Void>> handler) -> maps.get(0).put(key, "value", handler));
+      await((Handler<AsyncResult<Void>> handler) -> multiMaps.get(0).add(key, "node-0", handler));
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    ClusterBenchmark.<Void>await(cluster::close);
+  }
+
+  @Benchmark
+  public Void mapPut() throws Exception {
+    int i = next.getAndIncrement();
+    return await((Handler<AsyncResult<Void>> handler) -> maps.get(i % nodes).put("key-" + (i % KEYS), "value-" + i, handler));
+  }
+
+  @Benchmark
+  public String mapGet() throws Exception {
+    int i = next.getAndIncrement();
+    return await((Handler<AsyncResult<String>> handler) -> maps.get(i % nodes).get("key-" + (i % KEYS), handler));
+  }
+
+  @Benchmark
+  public ChoosableIterable<String> multiMapGet() throws Exception {
+    int i = next.getAndIncrement();
+    return await((handler) -> multiMaps.get(i % nodes).get("key-" + (i % KEYS), handler));
+  }
+
+  /**
+   * A consumer registered then unregistered, as done by the event bus.
+   */
+  @Benchmark
+  public Boolean multiMapAddRemove() throws Exception {
+    int i = next.getAndIncrement();
+    AsyncMultiMap<String, String> multiMap = multiMaps.get(i % nodes);
+    String key = "key-" + (i % KEYS);
+    await((Handler<AsyncResult<Void>> handler) -> multiMap.add(key, "consumer-" + i, handler));
+    return await((handler) -> multiMap.remove(key, "consumer-" + i, handler));
+  }
+
+  private static <T> T await(Consumer<Handler<AsyncResult<T>>> call) throws Exception {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    call.accept((ar) -> {
+      if (ar.succeeded()) {
+        future.complete(ar.result());
+      } else {
+        future.completeExceptionally(ar.cause());
+      }
+    });
+    return future.get(30, TimeUnit.SECONDS);
+  }
+}
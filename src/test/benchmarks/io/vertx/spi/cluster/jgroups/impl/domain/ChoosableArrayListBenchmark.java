@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lists holding the subscribers of an address: {@code choose} is called on every send, concurrently, while
+ * {@code add} and {@code remove} follow the registrations.
+ * <p>
+ * Run with {@code -t 1}, {@code -t 8} or {@code -t 32} to see how {@code choose} holds up under contention. The
+ * {@code churn} group runs {@code choose} on three threads while a fourth one keeps registering and unregistering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChoosableArrayListBenchmark {
+
+  @Param({"impl", "buffered"})
+  public String impl;
+
+  @Param({"1", "16", "256"})
+  public int size;
+
+  private ChoosableArrayList<String> list;
+  private String[] values;
+
+  @Setup
+  public void setup() {
+    values = new String[size];
+    list = create();
+    for (int i = 0; i < size; i++) {
+      values[i] = "node-" + i;
+      list = list.add(values[i]);
+    }
+  }
+
+  private ChoosableArrayList<String> create() {
+    return "buffered".equals(impl) ? new BufferedChoosableArrayList<>() : new ChoosableArrayListImpl<>();
+  }
+
+  @Benchmark
+  public String choose() {
+    return list.choose();
+  }
+
+  @Benchmark
+  public void iterate(Blackhole blackhole) {
+    for (String value : list) {
+      blackhole.consume(value);
+    }
+  }
+
+  @Benchmark
+  public ChoosableArrayList<String> fill() {
+    ChoosableArrayList<String> filled = create();
+    for (String value : values) {
+      filled = filled.add(value);
+    }
+    return filled;
+  }
+
+  @Benchmark
+  public ChoosableArrayList<String> addRemove() {
+    // Leaves the list as it found it, so every invocation works on a list of the same size.
+    return list.add("other").remove("other");
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(3)
+  public String chooseWhileChurning() {
+    return list.choose();
+  }
+
+  @Benchmark
+  @Group("churn")
+  @GroupThreads(1)
+  public ChoosableArrayList<String> churn() {
+    return list.add("other").remove("other");
+  }
+}
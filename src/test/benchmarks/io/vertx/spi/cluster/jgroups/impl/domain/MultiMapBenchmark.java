@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A subscription multimap: {@code addresses} keys each registered by {@code nodes} members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiMapBenchmark {
+
+  @Param({"1000", "100000"})
+  public int addresses;
+
+  @Param({"5"})
+  public int nodes;
+
+  private MultiMapImpl<String, String> map;
+  private int next;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    map = new MultiMapImpl<>("__vertx.subs");
+    for (int i = 0; i < addresses; i++) {
+      for (int node = 0; node < nodes; node++) {
+        map.add("address-" + i, "node-" + node);
+      }
+    }
+  }
+
+  @Benchmark
+  public ChoosableArrayList<String> get() {
+    return map.get("address-" + (next++ % addresses));
+  }
+
+  @Benchmark
+  public boolean addRemove() {
+    String address = "address-" + (next++ % addresses);
+    map.add(address, "other");
+    return map.remove(address, "other");
+  }
+
+  /**
+   * A member leaving: all its registrations are removed, the map is filled again before the next iteration.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Measurement(iterations = 20)
+  public int removeAllMatching() {
+    String node = "node-" + (next++ % nodes);
+    return map.removeAllMatching(node::equals).size();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.domain.async;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import io.vertx.spi.cluster.jgroups.impl.domain.ChoosableArrayList;
+import io.vertx.spi.cluster.jgroups.impl.domain.MultiMapImpl;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import io.vertx.spi.cluster.jgroups.impl.services.RpcExecutorService;
+import org.jgroups.Address;
+import org.jgroups.blocks.MethodCall;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The read of a subscription made on each event bus send, with the trace level disabled. Run it with {@code -prof gc}:
+ * neither the logging of the read nor the read handed to the executor may allocate, the {@code gc.alloc.rate.norm} of
+ * both {@link #get} and {@link #asyncGet} is 0.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiMapGetBenchmark {
+
+  private static final int ADDRESSES = 1_000;
+
+  private final String[] keys = new String[ADDRESSES];
+  private final InlineExecutorService executorService = new InlineExecutorService();
+  private final Handler<AsyncResult<ChoosableIterable<String>>> handler = (ar) -> {
+  };
+  private MultiMapImpl<String, String> map;
+  private AsyncMultiMapWrapper<String, String> wrapper;
+  private int next;
+
+  @Setup
+  public void setup() {
+    map = new MultiMapImpl<>("__vertx.subs");
+    for (int i = 0; i < ADDRESSES; i++) {
+      keys[i] = "address-" + i;
+      for (int node = 0; node < 5; node++) {
+        map.add(keys[i], "node-" + node);
+      }
+    }
+    wrapper = new AsyncMultiMapWrapper<>("__vertx.subs", map, executorService, AckLevel.ALL);
+  }
+
+  @Benchmark
+  public ChoosableArrayList<String> get() {
+    return map.get(keys[next++ % ADDRESSES]);
+  }
+
+  @Benchmark
+  public Object asyncGet() {
+    wrapper.get(keys[next++ % ADDRESSES], handler);
+    return executorService.result;
+  }
+
+  /**
+   * Runs the local reads on the calling thread and keeps their result, so that only the map wrapper allocates.
+   */
+  private static class InlineExecutorService implements RpcExecutorService {
+
+    private Object result;
+
+    @Override
+    public <T> void runAsync(Supplier<T> supplier, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void runLocal(Supplier<T> supplier, Handler<AsyncResult<T>> handler) {
+      result = supplier.get();
+    }
+
+    @Override
+    public <A, T> void runLocal(Function<A, T> read, A arg, Handler<AsyncResult<T>> handler) {
+      result = read.apply(arg);
+    }
+
+    @Override
+    public <T> T remoteExecute(MethodCall action, long timeout) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteExecute(MethodCall action, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteExecute(MethodCall action, long timeout, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteExecute(MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteExecute(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteExecute(Collection<Address> destinations, MethodCall action, AckLevel ack, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteRead(Collection<Address> destinations, MethodCall action, Handler<AsyncResult<T>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void remoteCollect(MethodCall action, Handler<AsyncResult<List<T>>> handler) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void stop() {
+    }
+  }
+}
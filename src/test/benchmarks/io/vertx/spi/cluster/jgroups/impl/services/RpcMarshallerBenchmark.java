@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.core.net.impl.ServerID;
+import org.jgroups.blocks.MethodCall;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of a subscription add, the most frequent call, with the {@link RpcMarshaller} and with the default
+ * serialization of JGroups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RpcMarshallerBenchmark {
+
+  private final RpcMarshaller marshaller = new RpcMarshaller();
+  private MethodCall call;
+
+  @Setup
+  public void setup() {
+    call = RpcServerObjDelegate.CALL_MULTIMAP_ADD.method("__vertx.subs", "some.address", new ServerID(8080, "192.168.1.10"));
+  }
+
+  @Benchmark
+  public Object marshaller() throws Exception {
+    Buffer buffer = marshaller.objectToBuffer(call);
+    return marshaller.objectFromBuffer(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+  }
+
+  @Benchmark
+  public Object serialization() throws Exception {
+    return Util.objectFromByteBuffer(Util.objectToByteBuffer(call));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.core.net.impl.ServerID;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The state a member sends to a joiner, with and without compression: a subscription map of {@code entries}
+ * addresses, each registered by one of 5 members. The time of a transfer is the time to write plus the time to read,
+ * the size of the state is printed along with the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StateCompressionBenchmark {
+
+  @Param({"none", "deflate"})
+  public String codec;
+
+  @Param({"1000000"})
+  public int entries;
+
+  private DefaultRpcMultiMapService multiMapService;
+  private byte[] state;
+
+  @Setup
+  public void setup() throws Exception {
+    multiMapService = new DefaultRpcMultiMapService();
+    for (int i = 0; i < entries; i++) {
+      multiMapService.multiMapAdd("__vertx.subs", DataHolder.wrap("address-" + i), DataHolder.wrap(new ServerID(8080, "192.168.1." + (i % 5))));
+    }
+    state = write();
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println("State of " + entries + " entries with codec " + codec + ": " + state.length + " bytes");
+  }
+
+  private byte[] write() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StateCompression.write(output, StateCompression.codec(codec), multiMapService::writeTo);
+    return output.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] writeState() throws Exception {
+    return write();
+  }
+
+  @Benchmark
+  public DefaultRpcMultiMapService readState() throws Exception {
+    DefaultRpcMultiMapService joiner = new DefaultRpcMultiMapService();
+    StateCompression.read(new ByteArrayInputStream(state), joiner::readFrom);
+    return joiner;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the members of two views, {@code changed} of them joined or left in between.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayUtilsBenchmark {
+
+  @Param({"3", "32", "256"})
+  public int members;
+
+  @Param({"1"})
+  public int changed;
+
+  private String[] left;
+  private String[] right;
+
+  @Setup
+  public void setup() {
+    left = new String[members];
+    right = new String[members];
+    for (int i = 0; i < members; i++) {
+      left[i] = String.format("node-%05d", i);
+      right[i] = String.format("node-%05d", i < changed ? members + i : i);
+    }
+    left = ArrayUtils.copySortAndFilter(left);
+    right = ArrayUtils.copySortAndFilter(right);
+  }
+
+  @Benchmark
+  public List<ComparedValue<String>> compareSorted() {
+    return ArrayUtils.compareSorted(left, right);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ServerID;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of the values held by the cluster maps, with the {@link DataCodec} and with Java serialization.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataCodecBenchmark {
+
+  @Param({"string", "serverId", "json"})
+  public String type;
+
+  private DataHolder<Object> holder;
+
+  @Setup
+  public void setup() {
+    switch (type) {
+      case "string":
+        holder = DataHolder.wrap("__vertx.haInfo");
+        break;
+      case "serverId":
+        holder = DataHolder.wrap(new ServerID(8080, "192.168.1.10"));
+        break;
+      case "json":
+        holder = DataHolder.wrap(new JsonObject().put("verticles", 12).put("group", "__DISABLED__").put("server", "192.168.1.10"));
+        break;
+      default:
+        throw new IllegalArgumentException(type);
+    }
+  }
+
+  @Benchmark
+  public Object codec() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    holder.writeTo(new DataOutputStream(bytes));
+    DataHolder<Object> read = new DataHolder<>();
+    read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    return read.unwrap();
+  }
+
+  @Benchmark
+  public Object serialization() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(holder.unwrap());
+    }
+    try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return input.readObject();
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.domain;
+
+import org.jgroups.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Iterator;
+
+public class TestBufferedChoosableArrayList {
+
+  @Test
+  public void testRoundRobin() {
+    ChoosableArrayList<String> value = new BufferedChoosableArrayList<String>().add("one").add("two");
+
+    Assert.assertEquals("one", value.choose());
+    Assert.assertEquals("two", value.choose());
+
+    value = value.add("three");
+
+    Assert.assertEquals("three", value.choose());
+    Assert.assertEquals("one", value.choose());
+    Assert.assertEquals("two", value.choose());
+  }
+
+  @Test
+  public void testRoundRobinRestartsAfterRemove() {
+    ChoosableArrayList<String> value = new BufferedChoosableArrayList<String>().add("one").add("two").add("three");
+
+    Assert.assertEquals("one", value.choose());
+    Assert.assertEquals("two", value.choose());
+    Assert.assertEquals("three", value.choose());
+
+    value = value.remove("two");
+
+    Assert.assertEquals("one", value.choose());
+    Assert.assertEquals("three", value.choose());
+    Assert.assertEquals("one", value.choose());
+  }
+
+  @Test
+  public void testBurstOfWrites() {
+    ChoosableArrayList<Integer> value = new BufferedChoosableArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      value.add(i);
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      value.remove(i);
+    }
+
+    Assert.assertEquals(500, value.size());
+    Assert.assertEquals(Integer.valueOf(1), value.first());
+    int expected = 1;
+    for (Integer i : value) {
+      Assert.assertEquals(Integer.valueOf(expected), i);
+      expected += 2;
+    }
+  }
+
+  @Test
+  public void testContains() {
+    ChoosableArrayList<String> value = new BufferedChoosableArrayList<String>().add("one").add("two").add("one");
+
+    value.remove("one");
+    Assert.assertTrue(value.contains("one"));
+    Assert.assertTrue(value.contains("two"));
+
+    value.remove("one");
+    Assert.assertFalse(value.contains("one"));
+    Assert.assertEquals(1, value.size());
+  }
+
+  @Test
+  public void testIteratorIsSnapshot() {
+    ChoosableArrayList<String> value = new BufferedChoosableArrayList<String>().add("one").add("two");
+
+    Iterator<String> iterator = value.iterator();
+    value.remove("one");
+
+    Assert.assertEquals("one", iterator.next());
+    Assert.assertEquals("two", iterator.next());
+    Assert.assertFalse(iterator.hasNext());
+    Assert.assertEquals(1, value.size());
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    ChoosableArrayList<Long> expected = new BufferedChoosableArrayList<Long>().add(1L).add(2L);
+    byte[] buffer;
+
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         DataOutputStream outputStream = new DataOutputStream(bos)) {
+      Util.writeObject(expected, outputStream);
+      outputStream.flush();
+      buffer = bos.toByteArray();
+    }
+
+    try (InputStream bis = new ByteArrayInputStream(buffer);
+         DataInputStream inputStream = new DataInputStream(bis)) {
+      ChoosableArrayList<Long> value = (ChoosableArrayList<Long>) Util.readObject(inputStream);
+
+      Assert.assertEquals(expected, value);
+      value.add(3L);
+      Assert.assertEquals(3, value.size());
+    }
+  }
+}
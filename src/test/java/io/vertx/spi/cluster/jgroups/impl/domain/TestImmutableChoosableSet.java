@@ -20,6 +20,10 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestImmutableChoosableSet {
 
@@ -190,4 +194,36 @@ public class TestImmutableChoosableSet {
     Assert.assertEquals(expected, value);
   }
 
+  @Test
+  public void testConcurrentChooseIsFair() throws Exception {
+    int threads = 8;
+    int choicesPerThread = 3000;
+    ChoosableArrayList<String> value = new ChoosableArrayListImpl<String>().add("one").add("two").add("three");
+    Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(threads);
+
+    for (int i = 0; i < threads; i++) {
+      new Thread(() -> {
+        try {
+          start.await();
+          for (int j = 0; j < choicesPerThread; j++) {
+            counts.computeIfAbsent(value.choose(), (k) -> new AtomicInteger()).incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+    start.countDown();
+    done.await();
+
+    int expected = threads * choicesPerThread / 3;
+    Assert.assertEquals(expected, counts.get("one").get());
+    Assert.assertEquals(expected, counts.get("two").get());
+    Assert.assertEquals(expected, counts.get("three").get());
+  }
+
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 public class TestMultiMapImpl {
 
@@ -86,6 +87,104 @@ public class TestMultiMapImpl {
     Assert.assertEquals(EXPECTED_VALUE3, multiMap.get(3L).choose());
   }
 
+  @Test
+  public void testRemoveAllMatching() {
+    MultiMapImpl<String, String> multiMap = new MultiMapImpl<String, String>("__cache");
+
+    multiMap.add("a1", "node1:v1");
+    multiMap.add("a1", "node2:v1");
+    multiMap.add("a2", "node1:v2");
+    multiMap.add("a2", "node1:v3");
+    multiMap.add("a3", "node2:v4");
+
+    multiMap.removeAllMatching((v) -> v.startsWith("node1:"));
+
+    Assert.assertEquals(1, multiMap.get("a1").size());
+    Assert.assertEquals("node2:v1", multiMap.get("a1").first());
+    Assert.assertTrue(multiMap.get("a2").isEmpty());
+    Assert.assertEquals(1, multiMap.get("a3").size());
+    Assert.assertEquals("node2:v4", multiMap.get("a3").first());
+  }
+
+  @Test
+  public void testRemoveAllWithConcurrentAdds() throws Exception {
+    int adders = 4;
+    int keys = 100;
+    for (int round = 0; round < 500; round++) {
+      MultiMapImpl<Integer, String> multiMap = new MultiMapImpl<Integer, String>("__cache");
+      CountDownLatch start = new CountDownLatch(1);
+      List<Thread> threads = new ArrayList<>();
+      for (int adder = 0; adder < adders; adder++) {
+        int first = adder * keys;
+        Thread thread = new Thread(() -> {
+          awaitUninterruptibly(start);
+          for (int key = first; key < first + keys; key++) {
+            multiMap.add(key, "value");
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      start.countDown();
+      for (int i = 0; i < 50; i++) {
+        multiMap.removeAll("value");
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      // Every key added so far is found through the index.
+      multiMap.removeAll("value");
+      for (int key = 0; key < adders * keys; key++) {
+        Assert.assertTrue(multiMap.get(key).isEmpty());
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyKeyEvicted() {
+    MultiMapImpl<Long, String> multiMap = new MultiMapImpl<Long, String>("__cache");
+
+    multiMap.add(1L, "value1");
+    multiMap.add(2L, "value1");
+    multiMap.add(2L, "value2");
+
+    Assert.assertTrue(multiMap.remove(1L, "value1"));
+    Assert.assertSame(ChoosableArrayList.emptyChoosable, multiMap.get(1L));
+
+    multiMap.removeAll("value2");
+    Assert.assertEquals(1, multiMap.get(2L).size());
+    multiMap.removeAll("value1");
+    Assert.assertSame(ChoosableArrayList.emptyChoosable, multiMap.get(2L));
+
+    multiMap.add(2L, "value3");
+    Assert.assertEquals("value3", multiMap.get(2L).choose());
+  }
+
+  @Test
+  public void testBufferedReadPerMultiMap() {
+    MultiMapImpl<Long, String> buffered;
+    System.setProperty(MultiMapImpl.BUFFERED_PROPERTY, "true");
+    try {
+      buffered = new MultiMapImpl<Long, String>("__cache");
+    } finally {
+      System.clearProperty(MultiMapImpl.BUFFERED_PROPERTY);
+    }
+    MultiMapImpl<Long, String> multiMap = new MultiMapImpl<Long, String>("__cache");
+
+    buffered.add(1L, "value1");
+    multiMap.add(1L, "value1");
+
+    Assert.assertTrue(buffered.get(1L) instanceof BufferedChoosableArrayList);
+    Assert.assertTrue(multiMap.get(1L) instanceof ChoosableArrayListImpl);
+
+    buffered.add(1L, "value2");
+    Assert.assertTrue(buffered.remove(1L, "value1"));
+    Assert.assertEquals("value2", buffered.get(1L).first());
+    Assert.assertTrue(buffered.remove(1L, "value2"));
+    Assert.assertSame(ChoosableArrayList.emptyChoosable, buffered.get(1L));
+  }
+
   @Test
   public void testExternalizable() throws IOException, ClassNotFoundException {
     MultiMapImpl<Long, String> expected = new MultiMapImpl<Long, String>("__cache");
@@ -145,4 +244,12 @@ public class TestMultiMapImpl {
     }
     Assert.assertEquals(0, cs.size());
   }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
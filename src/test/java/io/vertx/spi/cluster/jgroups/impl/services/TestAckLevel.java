@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import org.jgroups.blocks.ResponseMode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAckLevel {
+
+  @After
+  public void tearDown() {
+    System.clearProperty(AckLevel.PROPERTY);
+    System.clearProperty(AckLevel.PROPERTY + ".__vertx.subs");
+  }
+
+  @Test
+  public void testLevelOfMap() {
+    Assert.assertEquals(AckLevel.ALL, AckLevel.of("map"));
+
+    System.setProperty(AckLevel.PROPERTY, "majority");
+    System.setProperty(AckLevel.PROPERTY + ".__vertx.subs", " First ");
+    Assert.assertEquals(AckLevel.MAJORITY, AckLevel.of("map"));
+    Assert.assertEquals(AckLevel.FIRST, AckLevel.of("__vertx.subs"));
+    Assert.assertEquals(ResponseMode.GET_FIRST, AckLevel.of("__vertx.subs").mode());
+  }
+
+  @Test
+  public void testUnknownLevel() {
+    System.setProperty(AckLevel.PROPERTY, "some");
+    try {
+      AckLevel.of("map");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Invalid value [some] of [vertx.jgroups.ack], expected one of all, majority, first, none", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testValidate() {
+    AckLevel.validate();
+    System.setProperty(AckLevel.PROPERTY, "none");
+    System.setProperty(AckLevel.PROPERTY + ".__vertx.subs", "most");
+    try {
+      AckLevel.validate();
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("[vertx.jgroups.ack.__vertx.subs]"));
+    }
+  }
+}
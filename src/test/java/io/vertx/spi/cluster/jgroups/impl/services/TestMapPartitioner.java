@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.Address;
+import org.jgroups.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestMapPartitioner {
+
+  private static final List<String> PATTERNS = Arrays.asList("sessions", "cache.*");
+
+  private static class Member {
+
+    private final Address address;
+    private final MapPartitioner partitioner;
+    private final DefaultRpcMapService mapService;
+
+    private Member(int id, AtomicLong clock) {
+      this.address = new UUID(0, id);
+      this.partitioner = new MapPartitioner(address, PATTERNS, 1);
+      this.mapService = new DefaultRpcMapService(new StateLog(0).space(), partitioner, 10, clock::get);
+    }
+  }
+
+  @Test
+  public void testPartitioned() {
+    MapPartitioner partitioner = new MapPartitioner(new UUID(0, 1), PATTERNS, 1);
+    Assert.assertTrue(partitioner.partitioned("sessions"));
+    Assert.assertTrue(partitioner.partitioned("cache.users"));
+    Assert.assertFalse(partitioner.partitioned("sessions.old"));
+    Assert.assertFalse(partitioner.partitioned("other"));
+    Assert.assertFalse(new MapPartitioner(new UUID(0, 1), Collections.singletonList("*"), 1).partitioned("__vertx.subs"));
+    Assert.assertFalse(MapPartitioner.replicated().partitioned("sessions"));
+  }
+
+  @Test
+  public void testRebalance() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    Map<Address, Member> members = new LinkedHashMap<>();
+    for (int i = 1; i <= 3; i++) {
+      Member member = new Member(i, clock);
+      members.put(member.address, member);
+    }
+    view(members);
+    MapPartitioner.Mover mover = (name, keys, target) -> members.get(target).mapService.mapImport(name, members.values().stream()
+        .filter((member) -> member.mapService.mapCreate(name).keySet().containsAll(keys))
+        .findFirst().get().mapService.mapExport(name, keys));
+
+    Member first = members.values().iterator().next();
+    for (int i = 0; i < 1_000; i++) {
+      for (Address owner : first.partitioner.owners("key-" + i)) {
+        if (i % 2 == 0) {
+          members.get(owner).mapService.mapPut("sessions", DataHolder.wrap("key-" + i), DataHolder.wrap(i));
+        } else {
+          members.get(owner).mapService.mapPutTtl("sessions", DataHolder.wrap("key-" + i), DataHolder.wrap(i), i, 500);
+        }
+      }
+    }
+    assertPlaced(members, 1_000);
+
+    // A member joins, then another one leaves
+    Member joiner = new Member(4, clock);
+    members.put(joiner.address, joiner);
+    view(members);
+    members.values().forEach((member) -> member.partitioner.rebalance(member.mapService, mover));
+    assertPlaced(members, 1_000);
+
+    members.remove(first.address);
+    view(members);
+    members.values().forEach((member) -> member.partitioner.rebalance(member.mapService, mover));
+    assertPlaced(members, 1_000);
+
+    // The TTL moves along with the entries
+    List<String> expired = new ArrayList<>();
+    clock.set(500);
+    members.values().forEach((member) -> member.mapService.expire((name, ids) -> ids.keySet().forEach((key) -> expired.add((String) key))));
+    Assert.assertEquals(500 * 2, expired.size());
+  }
+
+  @Test
+  public void testDroppedOnceCopied() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    Map<Address, Member> members = new LinkedHashMap<>();
+    for (int i = 1; i <= 3; i++) {
+      Member member = new Member(i, clock);
+      members.put(member.address, member);
+    }
+    view(members);
+    Member first = members.values().iterator().next();
+    for (int i = 0; i < 1_000; i++) {
+      for (Address owner : first.partitioner.owners("key-" + i)) {
+        members.get(owner).mapService.mapPut("sessions", DataHolder.wrap("key-" + i), DataHolder.wrap(i));
+      }
+    }
+    Member joiner = new Member(4, clock);
+    members.put(joiner.address, joiner);
+    view(members);
+
+    // Nothing acknowledged, nothing dropped
+    int held = members.values().stream().mapToInt((member) -> member.mapService.mapCreate("sessions").size()).sum();
+    members.values().forEach((member) -> member.partitioner.rebalance(member.mapService, (name, keys, target) -> {
+      throw new Exception("unreachable");
+    }));
+    Assert.assertEquals(held, members.values().stream().mapToInt((member) -> member.mapService.mapCreate("sessions").size()).sum());
+
+    // The first member fails its copies: the members losing keys copy them themselves, and the first member places
+    // its entries again from where they were
+    Member other = new Member(5, clock);
+    members.put(other.address, other);
+    view(members);
+    for (Member member : members.values()) {
+      boolean complete = member.partitioner.rebalance(member.mapService, member == first ? (name, keys, target) -> {
+        throw new Exception("unreachable");
+      } : copier(members, member));
+      Assert.assertEquals(member != first, complete);
+    }
+    for (int i = 0; i < 1_000; i++) {
+      String key = "key-" + i;
+      Assert.assertTrue(members.values().stream().anyMatch((member) -> member.mapService.mapCreate("sessions").containsKey(key)));
+    }
+    Assert.assertTrue(first.partitioner.rebalance(first.mapService, copier(members, first)));
+    assertPlaced(members, 1_000);
+
+    // Losing the first member loses nothing
+    members.remove(first.address);
+    view(members);
+    members.values().forEach((member) -> Assert.assertTrue(member.partitioner.rebalance(member.mapService, copier(members, member))));
+    assertPlaced(members, 1_000);
+  }
+
+  /**
+   * The copies to a joiner fail, the members it now shares keys with must not count it as holding them in the next
+   * view.
+   */
+  @Test
+  public void testFailedCopyRetried() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    Map<Address, Member> members = new LinkedHashMap<>();
+    for (int i = 1; i <= 3; i++) {
+      Member member = new Member(i, clock);
+      members.put(member.address, member);
+    }
+    view(members);
+    Member first = members.values().iterator().next();
+    for (int i = 0; i < 1_000; i++) {
+      for (Address owner : first.partitioner.owners("key-" + i)) {
+        members.get(owner).mapService.mapPut("sessions", DataHolder.wrap("key-" + i), DataHolder.wrap(i));
+      }
+    }
+    Member joiner = new Member(4, clock);
+    members.put(joiner.address, joiner);
+    view(members);
+    for (Member member : members.values()) {
+      MapPartitioner.Mover copier = copier(members, member);
+      member.partitioner.rebalance(member.mapService, (name, keys, target) -> {
+        if (target.equals(joiner.address)) {
+          throw new Exception("unreachable");
+        }
+        copier.move(name, keys, target);
+      });
+    }
+    Assert.assertTrue(joiner.mapService.mapCreate("sessions").isEmpty());
+
+    Member last = members.values().stream().skip(2).findFirst().get();
+    members.remove(last.address);
+    view(members);
+    members.values().forEach((member) -> Assert.assertTrue(member.partitioner.rebalance(member.mapService, copier(members, member))));
+    assertPlaced(members, 1_000);
+  }
+
+  @Test
+  public void testNotInState() throws Exception {
+    Member member = new Member(1, new AtomicLong());
+    member.partitioner.membersChanged(Collections.singletonList(member.address));
+    member.mapService.mapPut("sessions", DataHolder.wrap("key"), DataHolder.wrap("value"));
+    member.mapService.mapPut("replicated", DataHolder.wrap("key"), DataHolder.wrap("value"));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    member.mapService.writeTo(output);
+    DefaultRpcMapService joiner = new DefaultRpcMapService();
+    joiner.readFrom(new ByteArrayInputStream(output.toByteArray()));
+
+    Assert.assertEquals("value", joiner.mapCreate("replicated").get("key"));
+    Assert.assertTrue(joiner.mapCreate("sessions").isEmpty());
+  }
+
+  @Test
+  public void testReadersInvalidated() {
+    Member member = new Member(1, new AtomicLong());
+    member.partitioner.membersChanged(Collections.singletonList(member.address));
+    Address reader = new UUID(0, 2);
+    List<Object> invalidated = new ArrayList<>();
+    member.mapService.invalidation((name, key, readers) -> {
+      Assert.assertEquals(Collections.singletonList(reader), readers);
+      invalidated.add(key);
+    });
+
+    member.mapService.mapPut("sessions", DataHolder.wrap("key"), DataHolder.wrap(1));
+    Assert.assertEquals(1, member.mapService.mapGet("sessions", DataHolder.wrap("key"), reader).unwrap());
+    member.mapService.mapPutIfAbsent("sessions", DataHolder.wrap("key"), DataHolder.wrap(2));
+    Assert.assertTrue(invalidated.isEmpty());
+    member.mapService.mapPut("sessions", DataHolder.wrap("key"), DataHolder.wrap(2));
+    Assert.assertEquals(Collections.singletonList("key"), invalidated);
+
+    // Told once, until it reads the entry again
+    member.mapService.mapRemove("sessions", DataHolder.wrap("key"));
+    Assert.assertEquals(1, invalidated.size());
+
+    member.mapService.mapGet("sessions", DataHolder.wrap("other"), reader);
+    member.mapService.mapClear("sessions");
+    Assert.assertEquals(Arrays.asList("key", null), invalidated);
+  }
+
+  @Test
+  public void testReadersBounded() {
+    Address local = new UUID(0, 1);
+    MapPartitioner partitioner = new MapPartitioner(local, PATTERNS, 1);
+    partitioner.membersChanged(Collections.singletonList(local));
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), partitioner, 10, () -> 0, 2);
+    Address reader = new UUID(0, 2);
+    Address other = new UUID(0, 3);
+    List<Object> invalidated = new ArrayList<>();
+    mapService.invalidation((name, key, readers) -> invalidated.add(key));
+
+    mapService.mapGet("sessions", DataHolder.wrap("a"), reader);
+    mapService.mapGet("sessions", DataHolder.wrap("b"), reader);
+    mapService.mapGet("sessions", DataHolder.wrap("a"), other);
+    // The least recently read key makes room, its readers drop their copy
+    mapService.mapGet("sessions", DataHolder.wrap("c"), reader);
+    Assert.assertEquals(Collections.singletonList("b"), invalidated);
+    mapService.mapPut("sessions", DataHolder.wrap("b"), DataHolder.wrap(1));
+    Assert.assertEquals(Collections.singletonList("b"), invalidated);
+
+    // The readers left, nothing to tell anymore
+    mapService.membersChanged(Collections.singletonList(local));
+    mapService.mapPut("sessions", DataHolder.wrap("a"), DataHolder.wrap(1));
+    mapService.mapClear("sessions");
+    Assert.assertEquals(Collections.singletonList("b"), invalidated);
+  }
+
+  private static MapPartitioner.Mover copier(Map<Address, Member> members, Member from) {
+    return (name, keys, target) -> members.get(target).mapService.mapImport(name, from.mapService.mapExport(name, keys));
+  }
+
+  private void view(Map<Address, Member> members) {
+    List<Address> addresses = new ArrayList<>(members.keySet());
+    members.values().forEach((member) -> member.partitioner.membersChanged(addresses));
+  }
+
+  private void assertPlaced(Map<Address, Member> members, int entries) {
+    int primaries = 0;
+    for (Member member : members.values()) {
+      Map<Object, Object> map = member.mapService.mapCreate("sessions");
+      for (Object key : map.keySet()) {
+        Assert.assertTrue(member.partitioner.owns(key));
+      }
+      primaries += member.mapService.mapOwnedSize("sessions");
+    }
+    Assert.assertEquals(entries, primaries);
+    for (int i = 0; i < entries; i++) {
+      for (Address owner : members.values().iterator().next().partitioner.owners("key-" + i)) {
+        Assert.assertEquals(i, members.get(owner).mapService.mapCreate("sessions").get("key-" + i));
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TestMapTtl {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  public void testExpiration() {
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), 10, clock::get);
+    mapService.mapPutTtl("map", DataHolder.wrap("key"), DataHolder.wrap("value"), 1, 100);
+    Map<String, String> map = mapService.mapCreate("map");
+
+    clock.set(90);
+    Assert.assertTrue(expire(mapService).isEmpty());
+    clock.set(100);
+    Map<String, Map<Object, Long>> expired = expire(mapService);
+    Assert.assertEquals(Collections.singletonMap("key", 1L), expired.get("map"));
+
+    // The entry stays until the expiration is applied cluster wide
+    Assert.assertEquals("value", map.get("key"));
+    mapService.mapExpire("map", ids("key", 1L));
+    Assert.assertNull(map.get("key"));
+  }
+
+  @Test
+  public void testWriteDropsTtl() {
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), 10, clock::get);
+    mapService.mapPutTtl("map", DataHolder.wrap("key"), DataHolder.wrap("value"), 1, 100);
+    Map<String, String> map = mapService.mapCreate("map");
+    // Sent before the write below was applied
+    mapService.mapPut("map", DataHolder.wrap("key"), DataHolder.wrap("other"));
+    mapService.mapExpire("map", ids("key", 1L));
+
+    clock.set(1_000);
+    Assert.assertTrue(expire(mapService).isEmpty());
+    Assert.assertEquals("other", map.get("key"));
+  }
+
+  @Test
+  public void testPutIfAbsentTtl() {
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), 10, clock::get);
+    mapService.mapPut("map", DataHolder.wrap("present"), DataHolder.wrap("value"));
+
+    Assert.assertEquals("value", mapService.mapPutIfAbsentTtl("map", DataHolder.wrap("present"), DataHolder.wrap("other"), 1, 100).unwrap());
+    Assert.assertNull(mapService.mapPutIfAbsentTtl("map", DataHolder.wrap("absent"), DataHolder.wrap("other"), 2, 100).unwrap());
+
+    clock.set(100);
+    Assert.assertEquals(Collections.singletonMap("absent", 2L), expire(mapService).get("map"));
+  }
+
+  @Test
+  public void testExpirationHandedOutAgain() {
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), 10, clock::get);
+    mapService.mapPutTtl("map", DataHolder.wrap("key"), DataHolder.wrap("value"), 1, 100);
+
+    clock.set(100);
+    Assert.assertEquals(1, expire(mapService).size());
+    clock.set(500);
+    Assert.assertTrue(expire(mapService).isEmpty());
+    // The removal never came back
+    clock.set(1_100);
+    Assert.assertEquals(1, expire(mapService).size());
+
+    mapService.mapExpire("map", ids("key", 1L));
+    clock.set(10_000);
+    Assert.assertTrue(expire(mapService).isEmpty());
+  }
+
+  @Test
+  public void testStateTransfer() throws Exception {
+    DefaultRpcMapService mapService = new DefaultRpcMapService(new StateLog(0).space(), 10, clock::get);
+    mapService.mapPutTtl("map", DataHolder.wrap("key"), DataHolder.wrap("value"), 1, 100);
+    mapService.mapPut("map", DataHolder.wrap("other"), DataHolder.wrap("value"));
+    clock.set(60);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    mapService.writeTo(output);
+
+    // The joiner clock has nothing to do with ours
+    AtomicLong joinerClock = new AtomicLong(5_000);
+    DefaultRpcMapService joiner = new DefaultRpcMapService(new StateLog(0).space(), 10, joinerClock::get);
+    joiner.readFrom(new ByteArrayInputStream(output.toByteArray()));
+
+    Assert.assertEquals(2, joiner.mapCreate("map").size());
+    joinerClock.set(5_030);
+    Assert.assertTrue(expire(joiner).isEmpty());
+    joinerClock.set(5_040);
+    Assert.assertEquals(Collections.singletonMap("key", 1L), expire(joiner).get("map"));
+  }
+
+  private static Map<String, Map<Object, Long>> expire(DefaultRpcMapService mapService) {
+    Map<String, Map<Object, Long>> expired = new HashMap<>();
+    mapService.expire(expired::put);
+    return expired;
+  }
+
+  private static Map<DataHolder<String>, Long> ids(String key, long id) {
+    return Collections.singletonMap(DataHolder.wrap(key), id);
+  }
+}
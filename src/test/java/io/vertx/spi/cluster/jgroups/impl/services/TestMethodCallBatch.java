@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Map;
+
+public class TestMethodCallBatch {
+
+  @Test
+  public void testSerialization() throws Exception {
+    MethodCallBatch expected = new MethodCallBatch(Arrays.asList(
+        RpcServerObjDelegate.CALL_MAP_PUT.method("map", "k1", "v1"),
+        RpcServerObjDelegate.CALL_MAP_REMOVE.method("map", "k2"),
+        RpcServerObjDelegate.CALL_MAP_CLEAR.method("map")
+    ));
+    byte[] buffer;
+
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         DataOutputStream outputStream = new DataOutputStream(bos)) {
+      Util.writeObject(expected, outputStream);
+      outputStream.flush();
+      buffer = bos.toByteArray();
+    }
+
+    try (InputStream bis = new ByteArrayInputStream(buffer);
+         DataInputStream inputStream = new DataInputStream(bis)) {
+      MethodCallBatch value = (MethodCallBatch) Util.readObject(inputStream);
+
+      Assert.assertEquals(3, value.size());
+      Assert.assertEquals(expected.id(0), value.id(0));
+      Assert.assertEquals("map", value.args(0)[0]);
+      Assert.assertEquals("k1", ((DataHolder) value.args(0)[1]).unwrap());
+      Assert.assertEquals("v1", ((DataHolder) value.args(0)[2]).unwrap());
+      Assert.assertEquals(expected.id(1), value.id(1));
+      Assert.assertEquals("k2", ((DataHolder) value.args(1)[1]).unwrap());
+      Assert.assertEquals(expected.id(2), value.id(2));
+      Assert.assertEquals(1, value.args(2).length);
+    }
+  }
+
+  @Test
+  public void testBatchAppliedInOrder() {
+    DefaultRpcMapService mapService = new DefaultRpcMapService();
+    RpcServerObjDelegate delegate = new RpcServerObjDelegate(mapService, new DefaultRpcMultiMapService());
+    Map<String, String> map = mapService.mapCreate("map");
+
+    Object[] results = delegate.batch(new MethodCallBatch(Arrays.asList(
+        RpcServerObjDelegate.CALL_MAP_PUT.method("map", "k", "v1"),
+        RpcServerObjDelegate.CALL_MAP_PUTIFABSENT.method("map", "k", "v2"),
+        RpcServerObjDelegate.CALL_MAP_REPLACE.method("map", "k", "v3"),
+        RpcServerObjDelegate.CALL_MAP_REMOVEIFPRESENT.method("map", "k", "v1")
+    )));
+
+    Assert.assertEquals(4, results.length);
+    Assert.assertNull(results[0]);
+    Assert.assertEquals("v1", ((DataHolder) results[1]).unwrap());
+    Assert.assertEquals("v1", ((DataHolder) results[2]).unwrap());
+    Assert.assertEquals(Boolean.FALSE, results[3]);
+    Assert.assertEquals("v3", map.get("k"));
+  }
+}
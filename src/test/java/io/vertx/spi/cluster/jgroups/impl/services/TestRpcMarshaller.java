@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.blocks.MethodCall;
+import org.jgroups.util.Buffer;
+import org.jgroups.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TestRpcMarshaller {
+
+  private final RpcMarshaller marshaller = new RpcMarshaller();
+
+  @Test
+  public void testMethodCall() throws Exception {
+    MethodCall value = (MethodCall) roundTrip(RpcServerObjDelegate.CALL_MAP_PUT.method("map", "key", "value"));
+
+    Assert.assertEquals(RpcServerObjDelegate.CALL_MAP_PUT.method("map", "key", "value").getId(), value.getId());
+    Assert.assertEquals(3, value.getArgs().length);
+    Assert.assertEquals("map", value.getArgs()[0]);
+    Assert.assertEquals("key", ((DataHolder) value.getArgs()[1]).unwrap());
+    Assert.assertEquals("value", ((DataHolder) value.getArgs()[2]).unwrap());
+  }
+
+  @Test
+  public void testPutAll() throws Exception {
+    Map<String, Integer> data = new HashMap<>();
+    data.put("one", 1);
+    data.put("two", 2);
+
+    MethodCall value = (MethodCall) roundTrip(RpcServerObjDelegate.CALL_MAP_PUTALL.method("map", data));
+
+    DefaultRpcMapService mapService = new DefaultRpcMapService();
+    Map<String, Integer> map = mapService.mapCreate("map");
+    RpcServerObjDelegate delegate = new RpcServerObjDelegate(mapService, new DefaultRpcMultiMapService());
+    delegate.getMethodLookup().findMethod(value.getId()).invoke(delegate, value.getArgs());
+
+    Assert.assertEquals(data, map);
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    MethodCall call = RpcServerObjDelegate.CALL_BATCH.apply(Arrays.asList(
+        RpcServerObjDelegate.CALL_MAP_REMOVE.method("map", "key"),
+        RpcServerObjDelegate.CALL_MAP_CLEAR.method("map")
+    ));
+
+    MethodCall value = (MethodCall) roundTrip(call);
+    MethodCallBatch batch = (MethodCallBatch) value.getArgs()[0];
+
+    Assert.assertEquals(2, batch.size());
+    Assert.assertEquals("key", ((DataHolder) batch.args(0)[1]).unwrap());
+    Assert.assertEquals(1, batch.args(1).length);
+  }
+
+  @Test
+  public void testResponses() throws Exception {
+    Assert.assertNull(roundTrip(null));
+    Assert.assertEquals(Boolean.TRUE, roundTrip(true));
+    Assert.assertEquals("value", ((DataHolder) roundTrip(DataHolder.wrap("value"))).unwrap());
+
+    Object[] results = (Object[]) roundTrip(new Object[]{null, DataHolder.wrap(1), false, new IllegalStateException("boom")});
+    Assert.assertNull(results[0]);
+    Assert.assertEquals(1, ((DataHolder) results[1]).unwrap());
+    Assert.assertEquals(Boolean.FALSE, results[2]);
+    Assert.assertEquals("boom", ((IllegalStateException) results[3]).getMessage());
+  }
+
+  @Test
+  public void testStripe() throws Exception {
+    Integer stripe = stripe(RpcServerObjDelegate.CALL_MAP_PUT.method("map", "key", "value"));
+    Assert.assertNotNull(stripe);
+    Assert.assertEquals(stripe, stripe(RpcServerObjDelegate.CALL_MAP_REMOVE.method("map", "key")));
+    Assert.assertFalse(stripe.equals(stripe(RpcServerObjDelegate.CALL_MAP_REMOVE.method("map", "other"))));
+    Assert.assertNull(stripe(RpcServerObjDelegate.CALL_MAP_CLEAR.method("map")));
+    Assert.assertNull(stripe(RpcServerObjDelegate.CALL_MULTIMAP_REMOVE_ALL.method("subs", "value")));
+    Assert.assertNull(stripe(RpcServerObjDelegate.CALL_MAP_INVALIDATE.method("map", null)));
+    Assert.assertNull(stripe(RpcServerObjDelegate.CALL_BATCH.apply(Collections.singletonList(RpcServerObjDelegate.CALL_MAP_PUT.method("map", "key", "value")))));
+  }
+
+  private Integer stripe(MethodCall call) throws Exception {
+    Buffer buffer = marshaller.objectToBuffer(call);
+    return StripedRpcDispatcher.stripe((MethodCall) marshaller.objectFromBuffer(buffer.getBuf(), buffer.getOffset(), buffer.getLength()));
+  }
+
+  @Test
+  public void testSmallerThanJavaSerialization() throws Exception {
+    MethodCall call = RpcServerObjDelegate.CALL_MULTIMAP_ADD.method("__vertx.subs", "address", Collections.singletonMap("k", "v"));
+
+    Buffer buffer = marshaller.objectToBuffer(call);
+    byte[] serialized = Util.objectToByteBuffer(call);
+
+    Assert.assertTrue(buffer.getLength() + " < " + serialized.length, buffer.getLength() < serialized.length);
+  }
+
+  private Object roundTrip(Object obj) throws Exception {
+    Buffer buffer = marshaller.objectToBuffer(obj);
+    return marshaller.objectFromBuffer(buffer.getBuf(), buffer.getOffset(), buffer.getLength());
+  }
+}
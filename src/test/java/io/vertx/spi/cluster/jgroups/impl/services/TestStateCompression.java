@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StreamCorruptedException;
+
+public class TestStateCompression {
+
+  @Test
+  public void testDeflate() throws Exception {
+    DefaultRpcMultiMapService multiMapService = new DefaultRpcMultiMapService();
+    for (int i = 0; i < 10_000; i++) {
+      multiMapService.multiMapAdd("__vertx.subs", DataHolder.wrap("address-" + i), DataHolder.wrap("localhost:15701"));
+    }
+
+    byte[] raw = write(multiMapService, StateCompression.codec("none"));
+    byte[] deflated = write(multiMapService, StateCompression.codec("deflate"));
+    Assert.assertTrue(deflated.length * 4 < raw.length);
+
+    for (byte[] state : new byte[][]{raw, deflated}) {
+      DefaultRpcMultiMapService joiner = new DefaultRpcMultiMapService();
+      StateCompression.read(new ByteArrayInputStream(state), joiner::readFrom);
+      MultiMap<String, String> subs = joiner.multiMapCreate("__vertx.subs");
+      Assert.assertEquals("localhost:15701", subs.get("address-9999").iterator().next());
+    }
+  }
+
+  @Test(expected = StreamCorruptedException.class)
+  public void testMissingHeader() throws Exception {
+    DefaultRpcMapService mapService = new DefaultRpcMapService();
+    mapService.mapPut("map", DataHolder.wrap("key"), DataHolder.wrap("value"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    mapService.writeTo(output);
+    StateCompression.read(new ByteArrayInputStream(output.toByteArray()), (input) -> Assert.fail());
+  }
+
+  private static byte[] write(DefaultRpcMultiMapService multiMapService, byte codec) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StateCompression.write(output, codec, multiMapService::writeTo);
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.jgroups.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestStateSnapshot {
+
+  @Test
+  public void testWriteAndLoad() throws Exception {
+    Path file = Files.createTempFile("vertx-jgroups", ".snapshot");
+    try {
+      DefaultRpcMultiMapService multiMapService = new DefaultRpcMultiMapService();
+      DefaultRpcMapService mapService = new DefaultRpcMapService();
+      multiMapService.multiMapAdd("subs", DataHolder.wrap("address"), DataHolder.wrap("node1"));
+      for (int i = 0; i < 1_000; i++) {
+        mapService.mapPut("map", DataHolder.wrap("key-" + i), DataHolder.wrap(i));
+      }
+      StatePosition position = new StatePosition(UUID.randomUUID(), 42, 7);
+
+      StateSnapshot snapshot = new StateSnapshot(file);
+      // Overwrites the previous snapshot
+      snapshot.write(new StatePosition(UUID.randomUUID(), 1, 1), (state) -> mapService.writeTo(state));
+      snapshot.write(position, (state) -> {
+        multiMapService.writeTo(state);
+        mapService.writeTo(state);
+      });
+
+      DefaultRpcMultiMapService loadedMultiMapService = new DefaultRpcMultiMapService();
+      DefaultRpcMapService loadedMapService = new DefaultRpcMapService();
+      AtomicReference<StatePosition> loaded = new AtomicReference<>();
+      Assert.assertTrue(snapshot.load((pos, state) -> {
+        loaded.set(pos);
+        loadedMultiMapService.readFrom(state);
+        loadedMapService.readFrom(state);
+        return true;
+      }));
+
+      Assert.assertEquals(position.provider(), loaded.get().provider());
+      Assert.assertEquals(42, loaded.get().epoch());
+      Assert.assertEquals(7, loaded.get().position());
+      Map<String, Integer> map = loadedMapService.mapCreate("map");
+      Assert.assertEquals(mapService.mapCreate("map"), map);
+      Assert.assertEquals("node1", loadedMultiMapService.<String, String>multiMapCreate("subs").get("address").iterator().next());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testMissingFile() throws Exception {
+    Path file = Files.createTempFile("vertx-jgroups", ".snapshot");
+    Files.delete(file);
+    Assert.assertFalse(new StateSnapshot(file).load((position, state) -> true));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotASnapshot() throws Exception {
+    Path file = Files.createTempFile("vertx-jgroups", ".snapshot");
+    try {
+      Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+      new StateSnapshot(file).load((position, state) -> true);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.services;
+
+import io.vertx.spi.cluster.jgroups.impl.domain.MultiMap;
+import io.vertx.spi.cluster.jgroups.impl.support.DataHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestStateTransfer {
+
+  @Test
+  public void testStateTransfer() throws Exception {
+    DefaultRpcMultiMapService multiMapService = new DefaultRpcMultiMapService();
+    DefaultRpcMapService mapService = new DefaultRpcMapService();
+    multiMapService.multiMapAdd("subs", DataHolder.wrap("address"), DataHolder.wrap("node1"));
+    multiMapService.multiMapAdd("subs", DataHolder.wrap("address"), DataHolder.wrap("node2"));
+    multiMapService.multiMapAdd("subs", DataHolder.wrap("other"), DataHolder.wrap("node1"));
+    // Large enough to span several chunks
+    for (int i = 0; i < 20_000; i++) {
+      mapService.mapPut("map", DataHolder.wrap("key-" + i), DataHolder.wrap(i));
+    }
+    mapService.mapPut("empty", DataHolder.wrap("key"), DataHolder.wrap("value"));
+    mapService.mapRemove("empty", DataHolder.wrap("key"));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    multiMapService.writeTo(output);
+    mapService.writeTo(output);
+
+    DefaultRpcMultiMapService joinerMultiMapService = new DefaultRpcMultiMapService();
+    DefaultRpcMapService joinerMapService = new DefaultRpcMapService();
+    // Maps created before the state arrives are filled in place
+    Map<String, Integer> map = joinerMapService.mapCreate("map");
+    ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+    joinerMultiMapService.readFrom(input);
+    joinerMapService.readFrom(input);
+
+    Assert.assertEquals(-1, input.read());
+    Assert.assertEquals(mapService.mapCreate("map"), map);
+    Assert.assertTrue(joinerMapService.mapCreate("empty").isEmpty());
+
+    MultiMap<String, String> subs = joinerMultiMapService.multiMapCreate("subs");
+    Set<String> nodes = new HashSet<>();
+    subs.get("address").forEach(nodes::add);
+    Assert.assertEquals(2, nodes.size());
+    Assert.assertTrue(nodes.contains("node1") && nodes.contains("node2"));
+    Assert.assertEquals("node1", subs.get("other").iterator().next());
+  }
+
+  @Test
+  public void testParallelApply() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StateChunks.Writer writer = new StateChunks.Writer(output, 128);
+    for (int m = 0; m < 50; m++) {
+      writer.section("map-" + m);
+      for (int i = 0; i < 1_000; i++) {
+        int value = i;
+        writer.record((out) -> out.writeInt(value));
+      }
+      writer.endSection();
+    }
+    writer.end();
+
+    Map<String, Set<Integer>> maps = new ConcurrentHashMap<>();
+    StateChunks.read(new ByteArrayInputStream(output.toByteArray()), (name) -> {
+      Set<Integer> values = maps.computeIfAbsent(name, (key) -> ConcurrentHashMap.newKeySet());
+      return (in) -> values.add(in.readInt());
+    }, 4);
+
+    Assert.assertEquals(50, maps.size());
+    maps.values().forEach((values) -> Assert.assertEquals(1_000, values.size()));
+  }
+
+  @Test(expected = IOException.class)
+  public void testParallelApplyFailure() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StateChunks.Writer writer = new StateChunks.Writer(output, 16);
+    writer.section("map");
+    for (int i = 0; i < 1_000; i++) {
+      writer.record((out) -> out.writeInt(0));
+    }
+    writer.endSection();
+    writer.end();
+
+    StateChunks.read(new ByteArrayInputStream(output.toByteArray()), (name) -> (in) -> {
+      throw new IOException("boom");
+    }, 4);
+  }
+
+  @Test(expected = AssertionError.class)
+  public void testParallelApplyError() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    StateChunks.Writer writer = new StateChunks.Writer(output, 16);
+    writer.section("map");
+    for (int i = 0; i < 1_000; i++) {
+      writer.record((out) -> out.writeInt(0));
+    }
+    writer.endSection();
+    writer.end();
+
+    StateChunks.read(new ByteArrayInputStream(output.toByteArray()), (name) -> (in) -> {
+      throw new AssertionError("boom");
+    }, 4);
+  }
+
+  @Test
+  public void testDelta() throws Exception {
+    StateLog stateLog = new StateLog(100);
+    DefaultRpcMultiMapService multiMapService = new DefaultRpcMultiMapService(stateLog.space());
+    DefaultRpcMapService mapService = new DefaultRpcMapService(stateLog.space());
+    RpcServerObjDelegate delegate = new RpcServerObjDelegate(mapService, multiMapService, stateLog);
+    multiMapService.multiMapAdd("subs", DataHolder.wrap("address"), DataHolder.wrap("node1"));
+    mapService.mapPut("map", DataHolder.wrap("removed"), DataHolder.wrap(1));
+    mapService.mapPut("map", DataHolder.wrap("updated"), DataHolder.wrap(1));
+    mapService.mapPut("cleared", DataHolder.wrap("key"), DataHolder.wrap(1));
+
+    long position = stateLog.position();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    multiMapService.writeTo(output);
+    mapService.writeTo(output);
+    DefaultRpcMultiMapService joinerMultiMapService = new DefaultRpcMultiMapService();
+    DefaultRpcMapService joinerMapService = new DefaultRpcMapService();
+    ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+    joinerMultiMapService.readFrom(input);
+    joinerMapService.readFrom(input);
+
+    multiMapService.multiMapAdd("subs", DataHolder.wrap("address"), DataHolder.wrap("node2"));
+    multiMapService.multiMapRemove("subs", DataHolder.wrap("address"), DataHolder.wrap("node1"));
+    mapService.mapRemove("map", DataHolder.wrap("removed"));
+    mapService.mapPut("map", DataHolder.wrap("updated"), DataHolder.wrap(2));
+    mapService.mapPut("map", DataHolder.wrap("added"), DataHolder.wrap(3));
+    mapService.mapClear("cleared");
+
+    byte[] delta = delegate.stateDelta(stateLog.epoch(), position);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+    Assert.assertEquals(stateLog.position(), in.readLong());
+    joinerMultiMapService.readDelta(in);
+    joinerMapService.readDelta(in);
+
+    Assert.assertEquals(mapService.mapCreate("map"), joinerMapService.mapCreate("map"));
+    Assert.assertTrue(joinerMapService.mapCreate("cleared").isEmpty());
+    MultiMap<String, String> subs = joinerMultiMapService.multiMapCreate("subs");
+    Iterator<String> nodes = subs.get("address").iterator();
+    Assert.assertEquals("node2", nodes.next());
+    Assert.assertFalse(nodes.hasNext());
+  }
+
+  @Test
+  public void testDeltaUnavailable() throws Exception {
+    StateLog stateLog = new StateLog(2);
+    DefaultRpcMapService mapService = new DefaultRpcMapService(stateLog.space());
+    RpcServerObjDelegate delegate = new RpcServerObjDelegate(mapService, new DefaultRpcMultiMapService(), stateLog);
+    mapService.mapPut("map", DataHolder.wrap("key1"), DataHolder.wrap(1));
+    long position = stateLog.position();
+
+    // Writing the same key again keeps the log within bounds
+    for (int i = 0; i < 10; i++) {
+      mapService.mapPut("map", DataHolder.wrap("key2"), DataHolder.wrap(i));
+    }
+    Assert.assertNotNull(delegate.stateDelta(stateLog.epoch(), position));
+
+    mapService.mapPut("map", DataHolder.wrap("key3"), DataHolder.wrap(1));
+    mapService.mapPut("map", DataHolder.wrap("key4"), DataHolder.wrap(1));
+    Assert.assertNull(delegate.stateDelta(stateLog.epoch(), position));
+    Assert.assertNull(delegate.stateDelta(stateLog.epoch() + 1, stateLog.position()));
+  }
+
+  @Test
+  public void testDisabledLog() throws Exception {
+    StateLog stateLog = new StateLog(0);
+    DefaultRpcMapService mapService = new DefaultRpcMapService(stateLog.space());
+    RpcServerObjDelegate delegate = new RpcServerObjDelegate(mapService, new DefaultRpcMultiMapService(), stateLog);
+    mapService.mapPut("map", DataHolder.wrap("key"), DataHolder.wrap(1));
+    mapService.mapClear("map");
+
+    Assert.assertEquals(0, stateLog.position());
+    Assert.assertNull(delegate.stateDelta(stateLog.epoch(), 0));
+  }
+}
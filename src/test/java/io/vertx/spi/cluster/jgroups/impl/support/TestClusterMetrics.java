@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+public class TestClusterMetrics {
+
+  @Test
+  public void testDisabled() {
+    ClusterMetrics metrics = new ClusterMetrics(false);
+    Assert.assertNull(metrics.operation("map", "mapPut"));
+    metrics.stateSent(1_000, 100, true);
+    Assert.assertEquals(0, metrics.getStateSentBytes());
+    Assert.assertTrue(metrics.getOperations().isEmpty());
+  }
+
+  @Test
+  public void testOperations() {
+    ClusterMetrics metrics = new ClusterMetrics(true);
+    OperationMetrics put = metrics.operation("map", "mapPut");
+    Assert.assertSame(put, metrics.operation("map", "mapPut"));
+    put.record(1_000, true);
+    put.record(3_000, false);
+    metrics.operation("__vertx.subs", "multiMapAdd").record(500, true);
+
+    OperationStats stats = metrics.getOperations().get("map/mapPut");
+    Assert.assertEquals(2, stats.getCount());
+    Assert.assertEquals(1, stats.getErrors());
+    Assert.assertEquals(2_000, stats.getMean());
+    Assert.assertEquals(3_000, stats.getMax());
+    Assert.assertEquals(1, metrics.getOperations().get("__vertx.subs/multiMapAdd").getCount());
+  }
+
+  @Test
+  public void testJmx() throws Exception {
+    ClusterMetrics metrics = new ClusterMetrics(true);
+    metrics.stateReceived(1_000_000, 4096, true);
+    metrics.viewChanged(3);
+    metrics.laneQueueDepths(() -> new int[]{1, 2});
+    metrics.register("member-1");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(ClusterMetrics.JMX_DOMAIN + ":type=ClusterMetrics,member=" + ObjectName.quote("member-1"));
+    try {
+      Assert.assertEquals(4096L, server.getAttribute(name, "StateReceivedBytes"));
+      Assert.assertEquals(1L, ((CompositeData) server.getAttribute(name, "StateReceived")).get("count"));
+      Assert.assertEquals(3, server.getAttribute(name, "Members"));
+      Assert.assertArrayEquals(new int[]{1, 2}, (int[]) server.getAttribute(name, "LaneQueueDepths"));
+    } finally {
+      metrics.unregister();
+    }
+    Assert.assertFalse(server.isRegistered(name));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.jgroups.Address;
+import org.jgroups.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class TestConsistentHash {
+
+  @Test
+  public void testOwners() {
+    ConsistentHash<String> ring = new ConsistentHash<>(Arrays.asList("node1", "node2", "node3"));
+    for (int i = 0; i < 1_000; i++) {
+      List<String> owners = ring.owners(ConsistentHash.hash("key-" + i), 2);
+      Assert.assertEquals(2, owners.size());
+      Assert.assertEquals(2, new HashSet<>(owners).size());
+      Assert.assertEquals(owners, ring.owners(ConsistentHash.hash("key-" + i), 2));
+    }
+    Assert.assertEquals(3, ring.owners(ConsistentHash.hash("key"), 5).size());
+    Assert.assertTrue(new ConsistentHash<String>(Collections.emptyList()).owners(ConsistentHash.hash("key"), 2).isEmpty());
+  }
+
+  @Test
+  public void testMemberOrderDoesNotMatter() {
+    ConsistentHash<String> ring = new ConsistentHash<>(Arrays.asList("node1", "node2", "node3"));
+    ConsistentHash<String> other = new ConsistentHash<>(Arrays.asList("node3", "node1", "node2"));
+    for (int i = 0; i < 1_000; i++) {
+      long hash = ConsistentHash.hash(i);
+      Assert.assertEquals(ring.owners(hash, 2), other.owners(hash, 2));
+    }
+  }
+
+  @Test
+  public void testBalanceAndMinimalMoves() {
+    int keys = 30_000;
+    ConsistentHash<String> ring = new ConsistentHash<>(Arrays.asList("node1", "node2", "node3"));
+    ConsistentHash<String> grown = new ConsistentHash<>(Arrays.asList("node1", "node2", "node3", "node4"));
+    Map<String, Integer> counts = new HashMap<>();
+    int moved = 0;
+    for (int i = 0; i < keys; i++) {
+      long hash = ConsistentHash.hash("key-" + i);
+      String owner = ring.owners(hash, 1).get(0);
+      String newOwner = grown.owners(hash, 1).get(0);
+      counts.merge(owner, 1, Integer::sum);
+      if (!owner.equals(newOwner)) {
+        // Keys only move to the new member
+        Assert.assertEquals("node4", newOwner);
+        moved++;
+      }
+    }
+    counts.values().forEach((count) -> Assert.assertTrue(count > keys / 3 / 2 && count < keys / 3 * 2));
+    Assert.assertTrue(moved > keys / 4 / 2 && moved < keys / 4 * 2);
+  }
+
+  @Test
+  public void testLogicalNamesDoNotMatter() {
+    List<Address> members = Arrays.asList(new UUID(0, 1), new UUID(0, 2), new UUID(0, 3));
+    ConsistentHash<Address> ring = new ConsistentHash<>(members);
+    UUID.add(members.get(0), "node1");
+    try {
+      ConsistentHash<Address> named = new ConsistentHash<>(members);
+      for (int i = 0; i < 1_000; i++) {
+        long hash = ConsistentHash.hash(i);
+        Assert.assertEquals(ring.owners(hash, 2), named.owners(hash, 2));
+      }
+    } finally {
+      UUID.remove(members.get(0));
+    }
+  }
+}
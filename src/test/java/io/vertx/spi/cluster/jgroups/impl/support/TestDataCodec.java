@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.impl.ServerID;
+import org.jgroups.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class TestDataCodec {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Assert.assertNull(roundTrip(null));
+    Assert.assertEquals("value", roundTrip("value"));
+    Assert.assertEquals(Boolean.TRUE, roundTrip(true));
+    Assert.assertEquals((byte) 7, roundTrip((byte) 7));
+    Assert.assertEquals((short) 7, roundTrip((short) 7));
+    Assert.assertEquals(7, roundTrip(7));
+    Assert.assertEquals(7L, roundTrip(7L));
+    Assert.assertEquals(7.5f, roundTrip(7.5f));
+    Assert.assertEquals(7.5d, roundTrip(7.5d));
+    Assert.assertEquals('v', roundTrip('v'));
+    Assert.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) roundTrip(new byte[]{1, 2, 3}));
+    Assert.assertEquals(Buffer.buffer("value"), roundTrip(Buffer.buffer("value")));
+    Assert.assertEquals(new JsonObject().put("key", "value"), roundTrip(new JsonObject().put("key", "value")));
+    Assert.assertEquals(new JsonArray().add(1).add("two"), roundTrip(new JsonArray().add(1).add("two")));
+    Assert.assertEquals(new ServerID(8080, "localhost"), roundTrip(new ServerID(8080, "localhost")));
+    UUID uuid = UUID.randomUUID();
+    Assert.assertEquals(uuid, roundTrip(uuid));
+  }
+
+  @Test
+  public void testLongString() throws Exception {
+    char[] chars = new char[100_000];
+    Arrays.fill(chars, '\u00e9');
+    String value = new String(chars);
+
+    Assert.assertEquals(value, roundTrip(value));
+  }
+
+  @Test
+  public void testVarInt() throws Exception {
+    for (int value : new int[]{0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE}) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataCodec.writeVarInt(value, new DataOutputStream(bos));
+      Assert.assertEquals(value, DataCodec.readVarInt(new DataInputStream(new ByteArrayInputStream(bos.toByteArray()))));
+    }
+  }
+
+  @Test
+  public void testDataHolder() throws Exception {
+    DataHolder expected = DataHolder.wrap(new JsonObject().put("key", "value"));
+    byte[] buffer;
+
+    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+         DataOutputStream outputStream = new DataOutputStream(bos)) {
+      Util.writeObject(expected, outputStream);
+      outputStream.flush();
+      buffer = bos.toByteArray();
+    }
+
+    try (InputStream bis = new ByteArrayInputStream(buffer);
+         DataInputStream inputStream = new DataInputStream(bis)) {
+      DataHolder value = (DataHolder) Util.readObject(inputStream);
+
+      Assert.assertEquals(expected.unwrap(), value.unwrap());
+    }
+  }
+
+  private static Object roundTrip(Object data) throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataCodec.write(data, new DataOutputStream(bos));
+    return DataCodec.read(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+
+  @Test
+  public void testBuckets() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE}) {
+      int bucket = LatencyHistogram.bucket(value);
+      Assert.assertTrue(value + " <= " + LatencyHistogram.highestValue(bucket), value <= LatencyHistogram.highestValue(bucket));
+      if (bucket > 0) {
+        Assert.assertTrue(value + " > " + LatencyHistogram.highestValue(bucket - 1), value > LatencyHistogram.highestValue(bucket - 1));
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(0, histogram.percentile(99));
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1_000);
+    }
+    Assert.assertEquals(10_000, histogram.count());
+    Assert.assertEquals(5_000_500, histogram.mean());
+    Assert.assertEquals(10_000_000, histogram.max());
+    assertWithin(5_000_000, histogram.percentile(50));
+    assertWithin(9_900_000, histogram.percentile(99));
+    Assert.assertEquals(10_000_000, histogram.percentile(100));
+  }
+
+  private void assertWithin(long expected, long actual) {
+    Assert.assertTrue(expected + " ~ " + actual, actual >= expected && actual <= expected + expected / 16);
+  }
+}
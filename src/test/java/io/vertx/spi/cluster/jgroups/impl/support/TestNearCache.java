@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Optional;
+
+public class TestNearCache {
+
+  @Test
+  public void testLeastRecentlyUsedOut() {
+    NearCache<String, Integer> cache = new NearCache<>(2);
+    cache.put("a", 1, cache.stamp());
+    cache.put("b", 2, cache.stamp());
+    Assert.assertEquals(Optional.of(1), cache.get("a"));
+    cache.put("c", 3, cache.stamp());
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(Optional.of(1), cache.get("a"));
+    Assert.assertEquals(Optional.of(3), cache.get("c"));
+    Assert.assertEquals(3, cache.hits());
+    Assert.assertEquals(1, cache.misses());
+  }
+
+  @Test
+  public void testAbsentEntries() {
+    NearCache<String, Integer> cache = new NearCache<>(2);
+    cache.put("a", null, cache.stamp());
+    Assert.assertEquals(Optional.empty(), cache.get("a"));
+  }
+
+  @Test
+  public void testInvalidationDuringRead() {
+    NearCache<String, Integer> cache = new NearCache<>(10);
+    long stamp = cache.stamp();
+    // The value read is older than the invalidation
+    cache.invalidate("a");
+    cache.put("a", 1, stamp);
+    Assert.assertNull(cache.get("a"));
+
+    cache.put("a", 2, cache.stamp());
+    cache.clear();
+    Assert.assertNull(cache.get("a"));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestStripedExecutor {
+
+  @Test
+  public void testOrderPerHash() throws Exception {
+    StripedExecutor executor = new StripedExecutor(4, "test");
+    try {
+      Map<Integer, List<Integer>> applied = new ConcurrentHashMap<>();
+      for (int i = 0; i < 10_000; i++) {
+        int key = i % 16;
+        int value = i;
+        executor.execute(key, () -> applied.computeIfAbsent(key, (k) -> Collections.synchronizedList(new ArrayList<>())).add(value));
+      }
+      executor.drain();
+
+      Assert.assertEquals(16, applied.size());
+      applied.values().forEach((values) -> {
+        Assert.assertEquals(10_000 / 16, values.size());
+        for (int i = 1; i < values.size(); i++) {
+          Assert.assertTrue(values.get(i - 1) < values.get(i));
+        }
+      });
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testExecuteAllWaitsForAllLanes() throws Exception {
+    StripedExecutor executor = new StripedExecutor(4, "test");
+    try {
+      CountDownLatch blocked = new CountDownLatch(1);
+      AtomicInteger done = new AtomicInteger();
+      executor.execute(1, () -> {
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.incrementAndGet();
+      });
+      List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+      executor.executeAll(() -> seen.add(done.get()));
+      executor.execute(2, () -> seen.add(-1));
+
+      Thread.sleep(50);
+      Assert.assertTrue(seen.isEmpty());
+      Assert.assertEquals(1, executor.queueDepths()[Math.floorMod(2 ^ (2 >>> 16), 4)]);
+      blocked.countDown();
+      executor.drain();
+      Assert.assertEquals(Arrays.asList(1, -1), seen);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
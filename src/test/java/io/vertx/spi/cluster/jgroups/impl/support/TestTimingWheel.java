@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2011-2013 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestTimingWheel {
+
+  private static class Entry extends TimingWheel.Timeout {
+
+    private final long deadline;
+
+    private Entry(long deadline) {
+      this.deadline = deadline;
+    }
+  }
+
+  @Test
+  public void testFiresAtDeadline() {
+    TimingWheel<Entry> wheel = new TimingWheel<>(10, 0);
+    Entry entry = new Entry(25);
+    wheel.schedule(entry, entry.deadline);
+
+    Assert.assertTrue(wheel.advance(19).isEmpty());
+    List<Entry> expired = wheel.advance(20);
+    Assert.assertEquals(1, expired.size());
+    Assert.assertSame(entry, expired.get(0));
+    Assert.assertFalse(entry.scheduled());
+    Assert.assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testPastDeadline() {
+    TimingWheel<Entry> wheel = new TimingWheel<>(10, 1000);
+    wheel.schedule(new Entry(0), 0);
+
+    Assert.assertEquals(1, wheel.advance(1010).size());
+  }
+
+  @Test
+  public void testCancelAndReschedule() {
+    TimingWheel<Entry> wheel = new TimingWheel<>(1, 0);
+    Entry cancelled = new Entry(100);
+    Entry moved = new Entry(100);
+    wheel.schedule(cancelled, 100);
+    wheel.schedule(moved, 100);
+
+    Assert.assertTrue(wheel.cancel(cancelled));
+    Assert.assertFalse(wheel.cancel(cancelled));
+    wheel.schedule(moved, 5_000);
+    Assert.assertEquals(1, wheel.size());
+
+    Assert.assertTrue(wheel.advance(4_999).isEmpty());
+    Assert.assertEquals(1, wheel.advance(5_000).size());
+  }
+
+  @Test
+  public void testDeadlinesAcrossLevels() {
+    TimingWheel<Entry> wheel = new TimingWheel<>(1, 0);
+    Random random = new Random(42);
+    List<Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      // Up to three times the range of the wheel
+      long deadline = 1 + (long) (random.nextDouble() * random.nextDouble() * 50_000_000L);
+      Entry entry = new Entry(deadline);
+      wheel.schedule(entry, deadline);
+      entries.add(entry);
+    }
+
+    long now = 0;
+    int fired = 0;
+    while (wheel.size() > 0) {
+      long previous = now;
+      now += 1 + random.nextInt(100_000);
+      for (Entry entry : wheel.advance(now)) {
+        Assert.assertTrue(entry.deadline > previous && entry.deadline <= now);
+        fired++;
+      }
+    }
+    Assert.assertEquals(entries.size(), fired);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static io.vertx.test.core.LoopbackNetwork.get;
+import static io.vertx.test.core.LoopbackNetwork.has;
+import static io.vertx.test.core.LoopbackNetwork.put;
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+/**
+ * The members dropping the messages of the writer are down as far as the write is concerned, while the view still
+ * holds them: a write waiting for them wouldn't complete.
+ */
+public class JGroupsAckLevelTest extends AsyncTestBase {
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  private LoopbackCluster cluster;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(AckLevel.PROPERTY + ".none", "none");
+    System.setProperty(AckLevel.PROPERTY + ".majority", "majority");
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    LoopbackNetwork.deliver(cluster);
+    LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+    System.clearProperty(AckLevel.PROPERTY + ".none");
+    System.clearProperty(AckLevel.PROPERTY + ".majority");
+    super.tearDown();
+  }
+
+  @Test
+  public void testNoneDoesNotWait() throws Exception {
+    AsyncMap<String, String> writer = map(0, "none");
+    AsyncMap<String, String> reader = map(1, "none");
+    LoopbackNetwork.drop(cluster, 1, 0);
+    LoopbackNetwork.drop(cluster, 2, 0);
+    put(writer, "key", "value");
+
+    // Applied once delivered
+    LoopbackNetwork.deliver(cluster);
+    assertWaitUntil(() -> has(reader, "key", "value"));
+  }
+
+  @Test
+  public void testMajorityWithMinorityDown() throws Exception {
+    AsyncMap<String, String> writer = map(0, "majority");
+    AsyncMap<String, String> other = map(1, "majority");
+    AsyncMap<String, String> down = map(2, "majority");
+    LoopbackNetwork.drop(cluster, 2, 0);
+    put(writer, "key", "value");
+    assertEquals("value", get(other, "key"));
+
+    LoopbackNetwork.deliver(cluster);
+    assertWaitUntil(() -> has(down, "key", "value"));
+  }
+
+  private AsyncMap<String, String> map(int member, String name) throws Exception {
+    JGroupsClusterManager clusterManager = cluster.clusterManager(member);
+    return result((handler) -> clusterManager.<String, String>getAsyncMap(name, handler));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class JGroupsLoopbackClusterTest extends AsyncTestBase {
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  @Test
+  public void testMembersSeeEachOther() throws Exception {
+    AtomicReference<LoopbackCluster> cluster = new AtomicReference<>();
+    JGroupsClusterManager.loopbackCluster(3, onSuccess(cluster::set));
+    assertWaitUntil(() -> cluster.get() != null);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(3, cluster.get().clusterManager(i).getNodes().size());
+    }
+    cluster.get().vertx(2).eventBus().consumer("news", (message) -> {
+      assertEquals("hello", message.body());
+      // Nothing is left behind once closed.
+      cluster.get().close(onSuccess((v) -> {
+        assertEquals(0, cluster.get().size());
+        assertEquals("", SHARED_LOOPBACK.dumpRoutingTable());
+        testComplete();
+      }));
+    }).completionHandler(onSuccess((v) -> cluster.get().vertx(0).eventBus().send("news", "hello")));
+    await();
+  }
+
+  @Test
+  public void testJoin() throws Exception {
+    AtomicReference<LoopbackCluster> cluster = new AtomicReference<>();
+    JGroupsClusterManager.loopbackCluster(2, onSuccess(cluster::set));
+    assertWaitUntil(() -> cluster.get() != null);
+
+    cluster.get().join(onSuccess((joined) -> {
+      assertEquals(3, joined.size());
+      for (int i = 0; i < 3; i++) {
+        assertEquals(3, joined.clusterManager(i).getNodes().size());
+      }
+      joined.close(onSuccess((v) -> testComplete()));
+    }));
+    await();
+  }
+
+  @Test
+  public void testClustersAreIsolated() throws Exception {
+    AtomicReference<LoopbackCluster> first = new AtomicReference<>();
+    AtomicReference<LoopbackCluster> second = new AtomicReference<>();
+    JGroupsClusterManager.loopbackCluster(2, onSuccess(first::set));
+    JGroupsClusterManager.loopbackCluster(2, onSuccess(second::set));
+    assertWaitUntil(() -> first.get() != null && second.get() != null);
+
+    assertEquals(2, first.get().clusterManager(0).getNodes().size());
+    assertEquals(2, second.get().clusterManager(0).getNodes().size());
+
+    first.get().close(onSuccess((v) -> second.get().close(onSuccess((w) -> testComplete()))));
+    await();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.DefaultRpcExecutorService;
+import io.vertx.spi.cluster.jgroups.impl.services.MapPartitioner;
+import io.vertx.spi.cluster.jgroups.impl.services.StateLog;
+import io.vertx.spi.cluster.jgroups.impl.services.StateSnapshot;
+import io.vertx.spi.cluster.jgroups.impl.support.ConsistentHash;
+import org.jgroups.Address;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static io.vertx.test.core.LoopbackNetwork.get;
+import static io.vertx.test.core.LoopbackNetwork.has;
+import static io.vertx.test.core.LoopbackNetwork.put;
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+/**
+ * The read only calls are sent out of band, and still return what they would in order.
+ */
+public class JGroupsOobReadsTest extends AsyncTestBase {
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  private LoopbackCluster cluster;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(DefaultRpcExecutorService.OOB_READS_PROPERTY, "true");
+    System.setProperty(StateLog.SIZE_PROPERTY, "1000");
+    System.setProperty(MapPartitioner.PARTITIONED_PROPERTY, "sessions");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (cluster != null) {
+      LoopbackNetwork.deliver(cluster);
+      LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+    }
+    System.clearProperty(DefaultRpcExecutorService.OOB_READS_PROPERTY);
+    System.clearProperty(StateLog.SIZE_PROPERTY);
+    System.clearProperty(MapPartitioner.PARTITIONED_PROPERTY);
+    System.clearProperty(StateSnapshot.FILE_PROPERTY);
+    System.clearProperty(StateSnapshot.INTERVAL_PROPERTY);
+    super.tearDown();
+  }
+
+  @Test
+  public void testMapReads() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] maps = maps("sessions");
+    LoopbackNetwork.RequestCounter[] counters = counters();
+    List<Address> members = cluster.channel(0).getView().getMembers();
+    for (int i = 0; i < 10; i++) {
+      String key = "key-" + i;
+      put(maps[0], key, key);
+      List<Address> owners = new ConsistentHash<>(members).owners(ConsistentHash.hash(key), 2);
+      int reader = 0;
+      while (owners.contains(cluster.channel(reader).getAddress())) {
+        reader++;
+      }
+      for (LoopbackNetwork.RequestCounter counter : counters) {
+        counter.reset();
+      }
+      assertEquals(key, get(maps[reader], key));
+      for (int member = 0; member < 3; member++) {
+        int expected = owners.contains(cluster.channel(member).getAddress()) ? 1 : 0;
+        assertEquals(expected, counters[member].requests());
+        assertEquals(expected, counters[member].oobRequests());
+      }
+    }
+  }
+
+  /**
+   * The member 2 got its state from the coordinator, it catches up with a delta from it once the partition heals.
+   */
+  @Test
+  public void testStateDelta() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    put(maps[0], "key", "before");
+
+    LoopbackNetwork.partition(cluster, new int[]{0, 1}, new int[]{2});
+    put(maps[0], "key", "after");
+    LoopbackNetwork.RequestCounter provider = LoopbackNetwork.countRequests(cluster, 0);
+    LoopbackNetwork.merge(cluster, new int[]{0, 1}, new int[]{2});
+    assertWaitUntil(() -> has(maps[2], "key", "after"));
+    assertWaitUntil(() -> provider.requests() > 0);
+    assertEquals(provider.requests(), provider.oobRequests());
+  }
+
+  /**
+   * Each snapshot of the member 1 asks the position of the coordinator's state log, its state provider.
+   */
+  @Test
+  public void testStatePosition() throws Exception {
+    Path dir = Files.createTempDirectory("snapshot");
+    Path file = dir.resolve("state");
+    System.setProperty(StateSnapshot.FILE_PROPERTY, file.toString());
+    System.setProperty(StateSnapshot.INTERVAL_PROPERTY, "100");
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(2, handler));
+    LoopbackNetwork.RequestCounter provider = LoopbackNetwork.countRequests(cluster, 0);
+    AsyncMap<String, String>[] maps = maps("data");
+    put(maps[0], "key", "value");
+    provider.reset();
+
+    assertWaitUntil(() -> provider.requests() > 0);
+    assertEquals(provider.requests(), provider.oobRequests());
+    assertTrue(Files.isRegularFile(file));
+  }
+
+  private AsyncMap<String, String>[] maps(String name) throws Exception {
+    AsyncMap<String, String>[] maps = new AsyncMap[cluster.size()];
+    for (int i = 0; i < maps.length; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps[i] = result((handler) -> clusterManager.<String, String>getAsyncMap(name, handler));
+    }
+    return maps;
+  }
+
+  private LoopbackNetwork.RequestCounter[] counters() throws Exception {
+    LoopbackNetwork.RequestCounter[] counters = new LoopbackNetwork.RequestCounter[cluster.size()];
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = LoopbackNetwork.countRequests(cluster, i);
+    }
+    return counters;
+  }
+}
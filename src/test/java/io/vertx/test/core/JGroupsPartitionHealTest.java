@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.StateLog;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static io.vertx.test.core.LoopbackNetwork.get;
+import static io.vertx.test.core.LoopbackNetwork.has;
+import static io.vertx.test.core.LoopbackNetwork.put;
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+public class JGroupsPartitionHealTest extends AsyncTestBase {
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(StateLog.SIZE_PROPERTY, "1000");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    System.clearProperty(StateLog.SIZE_PROPERTY);
+    super.tearDown();
+  }
+
+  /**
+   * Both sides of the partition write, the side without the coordinator of the merged view then takes the state of
+   * the other side. The member 1 got its state from the member 0, which was on its side: it can't catch up with a
+   * delta from it.
+   */
+  @Test
+  public void testOtherSideCatchesUpWithCoordinatorSide() throws Exception {
+    LoopbackCluster cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(4, handler));
+    AsyncMap<String, String>[] maps = new AsyncMap[4];
+    for (int i = 0; i < 4; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps[i] = result((handler) -> clusterManager.<String, String>getAsyncMap("data", handler));
+    }
+    put(maps[0], "shared", "before");
+
+    LoopbackNetwork.partition(cluster, new int[]{0, 1}, new int[]{2, 3});
+    put(maps[0], "left", "0");
+    put(maps[0], "shared", "left");
+    put(maps[2], "right", "2");
+    put(maps[2], "shared", "right");
+    assertEquals("left", get(maps[1], "shared"));
+    assertNull(get(maps[1], "right"));
+
+    LoopbackNetwork.merge(cluster, new int[]{2, 3}, new int[]{0, 1});
+    for (int i = 0; i < 2; i++) {
+      AsyncMap<String, String> map = maps[i];
+      assertWaitUntil(() -> has(map, "right", "2") && has(map, "shared", "right"));
+    }
+    assertEquals("right", get(maps[3], "shared"));
+
+    LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+  }
+}
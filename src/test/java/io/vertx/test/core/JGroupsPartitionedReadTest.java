@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.MapPartitioner;
+import io.vertx.spi.cluster.jgroups.impl.support.ConsistentHash;
+import org.jgroups.Address;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+public class JGroupsPartitionedReadTest extends AsyncTestBase {
+
+  private static final int MEMBERS = 4;
+  private static final int KEYS = 20;
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  private LoopbackCluster cluster;
+  private AsyncMap<String, String>[] maps;
+  private LoopbackNetwork.RequestCounter[] counters;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(MapPartitioner.PARTITIONED_PROPERTY, "sessions");
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(MEMBERS, handler));
+    maps = new AsyncMap[MEMBERS];
+    counters = new LoopbackNetwork.RequestCounter[MEMBERS];
+    for (int i = 0; i < MEMBERS; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps[i] = result((handler) -> clusterManager.<String, String>getAsyncMap("sessions", handler));
+      counters[i] = LoopbackNetwork.countRequests(cluster, i);
+    }
+    for (int i = 0; i < KEYS; i++) {
+      String key = "key-" + i;
+      LoopbackNetwork.<Void>result((handler) -> maps[0].put(key, key, handler));
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    LoopbackNetwork.deliver(cluster);
+    LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+    System.clearProperty(MapPartitioner.PARTITIONED_PROPERTY);
+    super.tearDown();
+  }
+
+  @Test
+  public void testReadsOnlyReachOwners() throws Exception {
+    for (int i = 0; i < KEYS; i++) {
+      String key = "key-" + i;
+      List<Address> owners = owners(key);
+      int reader = notOwner(owners);
+      resetCounters();
+      assertEquals(key, get(reader, key));
+      for (int member = 0; member < MEMBERS; member++) {
+        assertEquals(owners.contains(address(member)) ? 1 : 0, counters[member].requests());
+      }
+    }
+  }
+
+  @Test
+  public void testReadSucceedsWithoutFirstOwner() throws Exception {
+    String key = "key-0";
+    List<Address> owners = owners(key);
+    int reader = notOwner(owners);
+    int primary = member(owners.get(0));
+    int backup = member(owners.get(1));
+    LoopbackNetwork.drop(cluster, primary, reader);
+    resetCounters();
+    assertEquals(key, get(reader, key));
+    assertEquals(0, counters[primary].requests());
+    assertEquals(1, counters[backup].requests());
+  }
+
+  private List<Address> owners(String key) {
+    List<Address> members = cluster.channel(0).getView().getMembers();
+    // The primary owner and the default single backup
+    return new ConsistentHash<>(members).owners(ConsistentHash.hash(key), 2);
+  }
+
+  private int notOwner(List<Address> owners) {
+    for (int member = 0; member < MEMBERS; member++) {
+      if (!owners.contains(address(member))) {
+        return member;
+      }
+    }
+    throw new AssertionError("Every member owns the key");
+  }
+
+  private int member(Address address) {
+    for (int member = 0; member < MEMBERS; member++) {
+      if (address(member).equals(address)) {
+        return member;
+      }
+    }
+    throw new AssertionError(address + " isn't a member");
+  }
+
+  private Address address(int member) {
+    return cluster.channel(member).getAddress();
+  }
+
+  private void resetCounters() {
+    for (LoopbackNetwork.RequestCounter counter : counters) {
+      counter.reset();
+    }
+  }
+
+  private String get(int member, String key) throws Exception {
+    return LoopbackNetwork.get(maps[member], key);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import io.vertx.spi.cluster.jgroups.impl.services.DefaultRpcExecutorService;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.vertx.test.core.LoopbackNetwork.get;
+import static io.vertx.test.core.LoopbackNetwork.has;
+import static io.vertx.test.core.LoopbackNetwork.put;
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+/**
+ * The async writes are shipped in batches of {@link #BATCH_SIZE} calls, each caller still gets the result of its own
+ * call and the calls reach the members in the order they were issued.
+ */
+public class JGroupsRpcBatchTest extends AsyncTestBase {
+
+  private static final int BATCH_SIZE = 4;
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  private LoopbackCluster cluster;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(DefaultRpcExecutorService.BATCH_SIZE_PROPERTY, String.valueOf(BATCH_SIZE));
+    // Longer than the calls wait for their result: a batch is only sent once full, unless flushed.
+    System.setProperty(DefaultRpcExecutorService.BATCH_WINDOW_PROPERTY, "30000");
+    System.setProperty(AckLevel.PROPERTY + ".quick", "majority");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (cluster != null) {
+      LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+    }
+    System.clearProperty(DefaultRpcExecutorService.BATCH_SIZE_PROPERTY);
+    System.clearProperty(DefaultRpcExecutorService.BATCH_WINDOW_PROPERTY);
+    System.clearProperty(AckLevel.PROPERTY + ".quick");
+    super.tearDown();
+  }
+
+  @Test
+  public void testEachCallerGetsItsResult() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    LoopbackNetwork.RequestCounter counter = LoopbackNetwork.countRequests(cluster, 1);
+    AtomicInteger added = new AtomicInteger();
+    for (int i = 0; i < 2 * BATCH_SIZE; i++) {
+      maps[0].putIfAbsent("key-" + i, "value-" + i, onSuccess((previous) -> {
+        assertNull(previous);
+        added.incrementAndGet();
+      }));
+    }
+    assertWaitUntil(() -> added.get() == 2 * BATCH_SIZE);
+    assertEquals(2, counter.requests());
+
+    counter.reset();
+    AtomicInteger removed = new AtomicInteger();
+    for (int i = 0; i < 2 * BATCH_SIZE; i++) {
+      String expected = "value-" + i;
+      maps[0].remove("key-" + i, onSuccess((previous) -> {
+        assertEquals(expected, previous);
+        removed.incrementAndGet();
+      }));
+    }
+    assertWaitUntil(() -> removed.get() == 2 * BATCH_SIZE);
+    assertEquals(2, counter.requests());
+  }
+
+  @Test
+  public void testWindowFlushesPartialBatch() throws Exception {
+    System.setProperty(DefaultRpcExecutorService.BATCH_WINDOW_PROPERTY, "100");
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(2, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    LoopbackNetwork.RequestCounter counter = LoopbackNetwork.countRequests(cluster, 1);
+    AtomicInteger written = new AtomicInteger();
+    for (int i = 0; i < BATCH_SIZE - 1; i++) {
+      maps[0].put("key-" + i, "value-" + i, onSuccess((v) -> written.incrementAndGet()));
+    }
+    assertWaitUntil(() -> written.get() == BATCH_SIZE - 1);
+
+    assertEquals(1, counter.requests());
+    for (int i = 0; i < BATCH_SIZE - 1; i++) {
+      assertEquals("value-" + i, get(maps[1], "key-" + i));
+    }
+  }
+
+  /**
+   * The sync write returns the value it replaced: the write still waiting in the batch was applied before it.
+   */
+  @Test
+  public void testSyncCallFlushesPendingCalls() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(2, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    Map<String, String> sync = cluster.clusterManager(0).getSyncMap("data");
+    AtomicBoolean written = new AtomicBoolean();
+    maps[0].put("key", "async", onSuccess((v) -> written.set(true)));
+
+    assertEquals("async", sync.put("key", "sync"));
+    assertWaitUntil(written::get);
+    assertEquals("sync", get(maps[1], "key"));
+  }
+
+  /**
+   * A write not waiting for all the members isn't batched, the writes waiting in the batch are sent before it.
+   */
+  @Test
+  public void testLowerAckLevelFlushesPendingCalls() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] data = maps("data");
+    AsyncMap<String, String>[] quick = maps("quick");
+    AtomicBoolean written = new AtomicBoolean();
+    data[0].put("key", "batched", onSuccess((v) -> written.set(true)));
+
+    put(quick[0], "key", "quick");
+    assertWaitUntil(written::get);
+    for (int member = 0; member < cluster.size(); member++) {
+      AsyncMap<String, String> map = quick[member];
+      assertWaitUntil(() -> has(map, "key", "quick"));
+      assertEquals("batched", get(data[member], "key"));
+    }
+  }
+
+  private AsyncMap<String, String>[] maps(String name) throws Exception {
+    AsyncMap<String, String>[] maps = new AsyncMap[cluster.size()];
+    for (int i = 0; i < maps.length; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps[i] = result((handler) -> clusterManager.<String, String>getAsyncMap(name, handler));
+    }
+    return maps;
+  }
+}
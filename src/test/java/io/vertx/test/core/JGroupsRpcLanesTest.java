@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+
+package io.vertx.test.core;
+
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.JGroupsClusterManager;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import io.vertx.spi.cluster.jgroups.impl.services.AckLevel;
+import io.vertx.spi.cluster.jgroups.impl.services.DefaultRpcExecutorService;
+import io.vertx.spi.cluster.jgroups.impl.services.StripedRpcDispatcher;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.vertx.test.core.LoopbackNetwork.get;
+import static io.vertx.test.core.LoopbackNetwork.result;
+
+/**
+ * The calls are applied on lanes, each member must still end up with the state it would have applying them one after
+ * the other in the order they were delivered.
+ */
+public class JGroupsRpcLanesTest extends AsyncTestBase {
+
+  private static final int KEYS = 20;
+  private static final int WRITES = 50;
+
+  @Rule
+  public JGroupsCleanupRule testingJGroups = new JGroupsCleanupRule();
+
+  private LoopbackCluster cluster;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    System.setProperty(StripedRpcDispatcher.LANES_PROPERTY, "4");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (cluster != null) {
+      LoopbackNetwork.<Void>result((handler) -> cluster.close(handler));
+    }
+    System.clearProperty(StripedRpcDispatcher.LANES_PROPERTY);
+    System.clearProperty(DefaultRpcExecutorService.BATCH_SIZE_PROPERTY);
+    System.clearProperty(DefaultRpcExecutorService.BATCH_WINDOW_PROPERTY);
+    System.clearProperty(AckLevel.PROPERTY + ".quick");
+    super.tearDown();
+  }
+
+  @Test
+  public void testSameKeyWritesKeepTheirOrder() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, Integer>[] maps = maps("data");
+    AtomicInteger written = new AtomicInteger();
+    // The writes of a key are interleaved with the writes of the others, which go to other lanes.
+    for (int value = 0; value < WRITES; value++) {
+      for (int key = 0; key < KEYS; key++) {
+        maps[0].put("key-" + key, value, onSuccess((v) -> written.incrementAndGet()));
+      }
+    }
+    assertWaitUntil(() -> written.get() == KEYS * WRITES);
+
+    for (AsyncMap<String, Integer> map : maps) {
+      for (int key = 0; key < KEYS; key++) {
+        assertEquals(WRITES - 1, (int) get(map, "key-" + key));
+      }
+    }
+  }
+
+  @Test
+  public void testClearWaitsForKeysInFlight() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    AtomicInteger written = new AtomicInteger();
+    for (int key = 0; key < KEYS * WRITES; key++) {
+      maps[0].put("key-" + key, "value", onSuccess((v) -> written.incrementAndGet()));
+    }
+    LoopbackNetwork.<Void>result((handler) -> maps[0].clear(handler));
+    assertWaitUntil(() -> written.get() == KEYS * WRITES);
+
+    for (AsyncMap<String, String> map : maps) {
+      assertEquals(0, (int) LoopbackNetwork.<Integer>result(map::size));
+    }
+  }
+
+  /**
+   * The writes of the {@code quick} map don't wait for the members, once a batch is applied by all of them the writes
+   * delivered before it must have been applied too.
+   */
+  @Test
+  public void testBatchWaitsForKeysInFlight() throws Exception {
+    System.setProperty(DefaultRpcExecutorService.BATCH_SIZE_PROPERTY, String.valueOf(KEYS));
+    System.setProperty(DefaultRpcExecutorService.BATCH_WINDOW_PROPERTY, "30000");
+    System.setProperty(AckLevel.PROPERTY + ".quick", "none");
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(3, handler));
+    AsyncMap<String, String>[] quick = maps("quick");
+    AsyncMap<String, String>[] data = maps("data");
+    for (int key = 0; key < KEYS * WRITES; key++) {
+      LoopbackNetwork.put(quick[0], "key-" + key, "value");
+    }
+    AtomicInteger batched = new AtomicInteger();
+    for (int key = 0; key < KEYS; key++) {
+      data[0].put("key-" + key, "value", onSuccess((v) -> batched.incrementAndGet()));
+    }
+    assertWaitUntil(() -> batched.get() == KEYS);
+
+    for (AsyncMap<String, String> map : quick) {
+      assertEquals(KEYS * WRITES, (int) LoopbackNetwork.<Integer>result(map::size));
+    }
+  }
+
+  /**
+   * The joiner only receives the writes sent once it joined, the others must be part of the state it gets, even
+   * those still queued in the lanes of the coordinator.
+   */
+  @Test
+  public void testJoinerStateIncludesQueuedCalls() throws Exception {
+    cluster = result((handler) -> JGroupsClusterManager.loopbackCluster(2, handler));
+    AsyncMap<String, String>[] maps = maps("data");
+    AtomicInteger written = new AtomicInteger();
+    for (int key = 0; key < KEYS * WRITES; key++) {
+      maps[0].put("key-" + key, "value", onSuccess((v) -> written.incrementAndGet()));
+    }
+    LoopbackNetwork.<LoopbackCluster>result((handler) -> cluster.join(handler));
+    assertWaitUntil(() -> written.get() == KEYS * WRITES);
+
+    AsyncMap<String, String> joiner = this.<String>maps("data")[2];
+    assertEquals(KEYS * WRITES, (int) LoopbackNetwork.<Integer>result(joiner::size));
+  }
+
+  private <V> AsyncMap<String, V>[] maps(String name) throws Exception {
+    AsyncMap<String, V>[] maps = new AsyncMap[cluster.size()];
+    for (int i = 0; i < maps.length; i++) {
+      JGroupsClusterManager clusterManager = cluster.clusterManager(i);
+      maps[i] = result((handler) -> clusterManager.<String, V>getAsyncMap(name, handler));
+    }
+    return maps;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.test.core;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.spi.cluster.jgroups.LoopbackCluster;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.Header;
+import org.jgroups.JChannel;
+import org.jgroups.MergeView;
+import org.jgroups.Message;
+import org.jgroups.View;
+import org.jgroups.blocks.RequestCorrelator;
+import org.jgroups.protocols.DISCARD;
+import org.jgroups.protocols.FRAG2;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.stack.Protocol;
+import org.jgroups.stack.ProtocolStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Controls the network of a {@link LoopbackCluster}: the loopback stack has no failure detection nor merge protocol,
+ * partitions, merges and lost messages are installed by hand, and the RPCs each member receives can be counted.
+ */
+public class LoopbackNetwork {
+
+  /**
+   * Splits the cluster, each side only receives the messages of its own members and gets a view of its own. The
+   * first member of a side is its coordinator.
+   */
+  public static void partition(LoopbackCluster cluster, int[]... sides) throws Exception {
+    long id = nextViewId(cluster);
+    for (int[] side : sides) {
+      Address[] members = addresses(cluster, side);
+      View view = View.create(members[0], id, members);
+      for (int member : side) {
+        for (int other = 0; other < cluster.size(); other++) {
+          if (!contains(side, other)) {
+            drop(cluster, member, other);
+          }
+        }
+        gms(cluster.channel(member)).installView(view);
+      }
+    }
+  }
+
+  /**
+   * Heals a partition, the first member of the first side is the coordinator of the merged view.
+   */
+  public static void merge(LoopbackCluster cluster, int[]... sides) throws Exception {
+    long id = nextViewId(cluster);
+    List<Address> members = new ArrayList<>();
+    List<View> subgroups = new ArrayList<>();
+    for (int[] side : sides) {
+      for (Address address : addresses(cluster, side)) {
+        members.add(address);
+      }
+      subgroups.add(cluster.channel(side[0]).getView());
+    }
+    deliver(cluster);
+    MergeView view = new MergeView(members.get(0), id, members, subgroups);
+    for (int member = 0; member < cluster.size(); member++) {
+      gms(cluster.channel(member)).installView(view);
+    }
+  }
+
+  /**
+   * The member drops the messages of {@code senders} from now on, its view doesn't change.
+   */
+  public static void drop(LoopbackCluster cluster, int member, int... senders) throws Exception {
+    DISCARD discard = discard(cluster.channel(member));
+    for (int sender : senders) {
+      discard.addIgnoreMember(cluster.channel(sender).getAddress());
+    }
+  }
+
+  /**
+   * Every member receives the messages of all the others again.
+   */
+  public static void deliver(LoopbackCluster cluster) throws Exception {
+    for (int member = 0; member < cluster.size(); member++) {
+      discard(cluster.channel(member)).resetIgnoredMembers();
+    }
+  }
+
+  /**
+   * @return a counter of the RPCs the member receives from now on
+   */
+  public static RequestCounter countRequests(LoopbackCluster cluster, int member) throws Exception {
+    RequestCounter counter = new RequestCounter();
+    cluster.channel(member).getProtocolStack().insertProtocol(counter, ProtocolStack.ABOVE, FRAG2.class);
+    return counter;
+  }
+
+  /**
+   * Waits for the result of an async call.
+   */
+  public static <T> T result(Consumer<Handler<AsyncResult<T>>> call) throws Exception {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    call.accept((ar) -> {
+      if (ar.succeeded()) {
+        future.complete(ar.result());
+      } else {
+        future.completeExceptionally(ar.cause());
+      }
+    });
+    return future.get(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Puts an entry and waits for the write to complete.
+   */
+  public static <K, V> void put(AsyncMap<K, V> map, K key, V value) throws Exception {
+    LoopbackNetwork.<Void>result((handler) -> map.put(key, value, handler));
+  }
+
+  /**
+   * Waits for the value of a key.
+   */
+  public static <K, V> V get(AsyncMap<K, V> map, K key) throws Exception {
+    return LoopbackNetwork.<V>result((handler) -> map.get(key, handler));
+  }
+
+  /**
+   * @return whether the key has the value, {@code false} when it can't be read, e.g. to poll with
+   * {@code assertWaitUntil}
+   */
+  public static <K, V> boolean has(AsyncMap<K, V> map, K key, V value) {
+    try {
+      return Objects.equals(value, get(map, key));
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  private static long nextViewId(LoopbackCluster cluster) {
+    long id = 0;
+    for (int member = 0; member < cluster.size(); member++) {
+      id = Math.max(id, cluster.channel(member).getView().getViewId().getId());
+    }
+    return id + 1;
+  }
+
+  private static Address[] addresses(LoopbackCluster cluster, int[] members) {
+    Address[] addresses = new Address[members.length];
+    for (int i = 0; i < members.length; i++) {
+      addresses[i] = cluster.channel(members[i]).getAddress();
+    }
+    return addresses;
+  }
+
+  private static boolean contains(int[] members, int member) {
+    for (int m : members) {
+      if (m == member) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static GMS gms(JChannel channel) {
+    return (GMS) channel.getProtocolStack().findProtocol(GMS.class);
+  }
+
+  private static DISCARD discard(JChannel channel) throws Exception {
+    DISCARD discard = (DISCARD) channel.getProtocolStack().findProtocol(DISCARD.class);
+    if (discard == null) {
+      discard = new DISCARD();
+      channel.getProtocolStack().insertProtocol(discard, ProtocolStack.ABOVE, SHARED_LOOPBACK.class);
+    }
+    return discard;
+  }
+
+  /**
+   * Counts the RPC requests going up the stack, in total and sent out of band.
+   */
+  public static class RequestCounter extends Protocol {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger oobRequests = new AtomicInteger();
+
+    @Override
+    public Object up(Event evt) {
+      if (evt.getType() == Event.MSG) {
+        Message msg = (Message) evt.getArg();
+        for (Header header : msg.getHeaders().values()) {
+          if (header instanceof RequestCorrelator.Header && ((RequestCorrelator.Header) header).type == RequestCorrelator.Header.REQ) {
+            requests.incrementAndGet();
+            if (msg.isFlagSet(Message.Flag.OOB)) {
+              oobRequests.incrementAndGet();
+            }
+          }
+        }
+      }
+      return up_prot.up(evt);
+    }
+
+    public int requests() {
+      return requests.get();
+    }
+
+    public int oobRequests() {
+      return oobRequests.get();
+    }
+
+    public void reset() {
+      requests.set(0);
+      oobRequests.set(0);
+    }
+  }
+}
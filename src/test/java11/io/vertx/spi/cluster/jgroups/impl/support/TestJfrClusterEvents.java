@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2011-2014 The original author or authors
+ * ------------------------------------------------------
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Apache License v2.0 which accompanies this distribution.
+ *
+ *     The Eclipse Public License is available at
+ *     http://www.eclipse.org/legal/epl-v10.html
+ *
+ *     The Apache License v2.0 is available at
+ *     http://www.opensource.org/licenses/apache2.0.php
+ *
+ * You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.spi.cluster.jgroups.impl.support;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestJfrClusterEvents {
+
+  @Test
+  public void testLoaded() {
+    Assert.assertTrue(ClusterEvents.EVENTS instanceof JfrClusterEvents);
+  }
+
+  @Test
+  public void testNotRecorded() {
+    Assert.assertFalse(ClusterEvents.EVENTS.viewEnabled());
+    Assert.assertNull(ClusterEvents.EVENTS.rpc("mapPut", "map", "GET_ALL"));
+    Assert.assertNull(ClusterEvents.EVENTS.stateTransfer(true));
+    Assert.assertNull(ClusterEvents.EVENTS.viewChange(3, 1, 0));
+  }
+
+  @Test
+  public void testRecorded() throws Exception {
+    Path dump = Files.createTempFile("cluster-events", ".jfr");
+    try {
+      try (Recording recording = new Recording()) {
+        recording.enable(RpcEvent.class);
+        recording.enable(StateTransferEvent.class);
+        recording.enable(ViewChangeEvent.class);
+        recording.start();
+        ClusterEvents.Rpc rpc = ClusterEvents.EVENTS.rpc("mapPut", "map", "GET_ALL");
+        ClusterEvents.EVENTS.marshalled(42);
+        rpc.sent();
+        // Sent, the size of the next call doesn't go to it
+        ClusterEvents.EVENTS.marshalled(7);
+        rpc.completed(3, true);
+        ClusterEvents.EVENTS.stateTransfer(false).completed(1024, false);
+        Assert.assertTrue(ClusterEvents.EVENTS.viewEnabled());
+        ClusterEvents.EVENTS.viewChange(3, 1, 2).dispatched();
+        recording.stop();
+        recording.dump(dump);
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+      RecordedEvent rpc = single(events, "io.vertx.jgroups.Rpc");
+      Assert.assertEquals("mapPut", rpc.getString("method"));
+      Assert.assertEquals("map", rpc.getString("map"));
+      Assert.assertEquals("GET_ALL", rpc.getString("mode"));
+      Assert.assertEquals(42, rpc.getLong("bytes"));
+      Assert.assertEquals(3, rpc.getInt("responders"));
+      Assert.assertTrue(rpc.getBoolean("succeeded"));
+
+      RecordedEvent stateTransfer = single(events, "io.vertx.jgroups.StateTransfer");
+      Assert.assertFalse(stateTransfer.getBoolean("sent"));
+      Assert.assertEquals(1024, stateTransfer.getLong("bytes"));
+      Assert.assertFalse(stateTransfer.getBoolean("succeeded"));
+
+      RecordedEvent viewChange = single(events, "io.vertx.jgroups.ViewChange");
+      Assert.assertEquals(3, viewChange.getInt("members"));
+      Assert.assertEquals(1, viewChange.getInt("joined"));
+      Assert.assertEquals(2, viewChange.getInt("left"));
+    } finally {
+      Files.delete(dump);
+    }
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> found = events.stream()
+        .filter((event) -> event.getEventType().getName().equals(name))
+        .collect(Collectors.toList());
+    Assert.assertEquals(1, found.size());
+    return found.get(0);
+  }
+}